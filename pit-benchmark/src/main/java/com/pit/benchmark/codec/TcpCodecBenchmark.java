@@ -0,0 +1,143 @@
+package com.pit.benchmark.codec;
+
+import com.pit.core.codec.TcpPack;
+import com.pit.core.codec.TcpUnpack;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.apache.commons.lang3.ArrayUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TcpPack}/{@link TcpUnpack} 编解码 64 个 long: 定长 8 字节、varint, 以及无符号 long 的 BigInteger 与 long 读取 </br>
+ * legacy 为改造前读取 byte[] 反转后构造 BigInteger 的实现
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TcpCodecBenchmark {
+    private static final int COUNT = 64;
+
+    private long[] values;
+    private BigInteger[] bigValues;
+    private ByteBuf writeBuf;
+    private ByteBuf fixedBuf;
+    private ByteBuf varBuf;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        values = new long[COUNT];
+        bigValues = new BigInteger[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            // 业务中多为较小的 id、计数
+            values[i] = random.nextInt(100000);
+            bigValues[i] = BigInteger.valueOf(values[i]);
+        }
+
+        writeBuf = Unpooled.directBuffer(COUNT * 10);
+        fixedBuf = Unpooled.directBuffer(COUNT * 8);
+        varBuf = Unpooled.directBuffer(COUNT * 10);
+        TcpPack fixedPack = new TcpPack(fixedBuf);
+        TcpPack varPack = new TcpPack(varBuf);
+        for (long value : values) {
+            fixedPack.putLong(value, true);
+            varPack.putVarLong(value);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        writeBuf.release();
+        fixedBuf.release();
+        varBuf.release();
+    }
+
+    @Benchmark
+    public ByteBuf writeFixedLong() {
+        writeBuf.clear();
+        TcpPack pack = new TcpPack(writeBuf);
+        for (long value : values) {
+            pack.putLong(value, true);
+        }
+        return writeBuf;
+    }
+
+    @Benchmark
+    public ByteBuf writeUnsignedLongBigInteger() {
+        writeBuf.clear();
+        TcpPack pack = new TcpPack(writeBuf);
+        for (BigInteger value : bigValues) {
+            pack.putUnsignedLong(value, true);
+        }
+        return writeBuf;
+    }
+
+    @Benchmark
+    public ByteBuf writeVarLong() {
+        writeBuf.clear();
+        TcpPack pack = new TcpPack(writeBuf);
+        for (long value : values) {
+            pack.putVarLong(value);
+        }
+        return writeBuf;
+    }
+
+    @Benchmark
+    public void readUnsignedLongLegacy(Blackhole bh) {
+        fixedBuf.readerIndex(0);
+        for (int i = 0; i < COUNT; i++) {
+            byte[] bytes = new byte[8];
+            fixedBuf.readBytes(bytes);
+            ArrayUtils.reverse(bytes);
+            bh.consume(new BigInteger(1, bytes));
+        }
+    }
+
+    @Benchmark
+    public void readUnsignedLong(Blackhole bh) {
+        fixedBuf.readerIndex(0);
+        TcpUnpack unpack = new TcpUnpack(fixedBuf);
+        for (int i = 0; i < COUNT; i++) {
+            bh.consume(unpack.getUnsignedLong(true));
+        }
+    }
+
+    @Benchmark
+    public void readUnsignedLongAsLong(Blackhole bh) {
+        fixedBuf.readerIndex(0);
+        TcpUnpack unpack = new TcpUnpack(fixedBuf);
+        for (int i = 0; i < COUNT; i++) {
+            bh.consume(unpack.getUnsignedLongAsLong(true));
+        }
+    }
+
+    @Benchmark
+    public void readVarLong(Blackhole bh) {
+        varBuf.readerIndex(0);
+        TcpUnpack unpack = new TcpUnpack(varBuf);
+        for (int i = 0; i < COUNT; i++) {
+            bh.consume(unpack.getVarLong());
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package com.pit.benchmark.compression;
+
+import com.pit.core.compression.KryoLz4Codec;
+import com.pit.core.compression.KryoUtil;
+import com.pit.core.compression.Lz4Util;
+import lombok.Data;
+import org.apache.commons.codec.binary.Base64;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link KryoLz4Codec} 与 {@link KryoUtil} + {@link Lz4Util} (+ Base64) 串联的编解码对比, 序列化后约 1KB、64KB、1MB
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KryoLz4CodecBenchmark {
+    /**
+     * 单个 Item 序列化后的大致字节数
+     */
+    private static final int ITEM_BYTES = 32;
+
+    @Param({"1024", "65536", "1048576"})
+    private int size;
+
+    private KryoLz4Codec codec;
+    private Payload payload;
+    private byte[] chainedBytes;
+    private byte[] codecBytes;
+    private String chainedString;
+    private String codecString;
+
+    @Setup
+    public void setUp() {
+        codec = KryoLz4Codec.getDefault();
+
+        Random random = new Random(42);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < size / ITEM_BYTES; i++) {
+            Item item = new Item();
+            item.setId(random.nextInt(1000000));
+            item.setName("item-" + random.nextInt(1000));
+            item.setScore(random.nextInt(100) / 10.0);
+            items.add(item);
+        }
+        payload = new Payload();
+        payload.setName("payload-" + size);
+        payload.setItems(items);
+
+        chainedBytes = chainedEncode();
+        codecBytes = codecEncode();
+        chainedString = chainedEncodeToString();
+        codecString = codecEncodeToString();
+    }
+
+    @Benchmark
+    public byte[] chainedEncode() {
+        return Lz4Util.compress(KryoUtil.writeObjectToByteArray(payload));
+    }
+
+    @Benchmark
+    public byte[] codecEncode() {
+        return codec.encode(payload);
+    }
+
+    @Benchmark
+    public Payload chainedDecode() {
+        return KryoUtil.readObjectFromByteArray(Lz4Util.decompress(chainedBytes), Payload.class);
+    }
+
+    @Benchmark
+    public Payload codecDecode() {
+        return codec.decode(codecBytes, Payload.class);
+    }
+
+    @Benchmark
+    public String chainedEncodeToString() {
+        return Base64.encodeBase64String(chainedEncode());
+    }
+
+    @Benchmark
+    public String codecEncodeToString() {
+        return codec.encodeToString(payload);
+    }
+
+    @Benchmark
+    public Payload chainedDecodeFromString() {
+        return KryoUtil.readObjectFromByteArray(Lz4Util.decompress(Base64.decodeBase64(chainedString)), Payload.class);
+    }
+
+    @Benchmark
+    public Payload codecDecodeFromString() {
+        return codec.decodeFromString(codecString, Payload.class);
+    }
+
+    @Data
+    public static class Payload {
+        private String name;
+        private List<Item> items;
+    }
+
+    @Data
+    public static class Item {
+        private long id;
+        private String name;
+        private double score;
+    }
+}
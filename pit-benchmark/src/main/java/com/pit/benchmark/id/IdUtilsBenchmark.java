@@ -0,0 +1,122 @@
+package com.pit.benchmark.id;
+
+import com.pit.core.id.IdUtils;
+import com.pit.core.time.CachingSystemTimer2;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link IdUtils} 的 long/字符串 ID 与改造前的字符串拼接实现对比 </br>
+ * 旧实现每毫秒 index 超过 9999 时 sleep 到下一毫秒, 多线程下这部分耗时会体现在结果中
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class IdUtilsBenchmark {
+    private IdUtils idUtils;
+    private LegacyIdUtils legacyIdUtils;
+
+    @Setup
+    public void setUp() {
+        idUtils = new IdUtils("01", 20);
+        legacyIdUtils = new LegacyIdUtils("01", 20);
+    }
+
+    @Benchmark
+    public long longId() {
+        return idUtils.getLongID(12345L);
+    }
+
+    @Benchmark
+    public String stringId() {
+        return idUtils.getID(12345L);
+    }
+
+    @Benchmark
+    public String legacyStringId() {
+        return legacyIdUtils.getID(12345L);
+    }
+
+    /**
+     * 改造前的 IdUtils.getID, 仅用于对比 </br>
+     * 原实现超过间隔后的回绕循环不会终止, 这里改为取模, 其余不变
+     */
+    private static final class LegacyIdUtils {
+        private static final long START_TIME = 1577808000000L;
+        private static final long GAP_LIMIT = 100000000000L;
+        private static final long MAX_INDEX = 9999L;
+
+        private final String machNo;
+        private final int partition;
+        private final int remain;
+
+        private LegacyIdUtils(String machNo, int partition) {
+            this.machNo = machNo;
+            this.partition = partition;
+            this.remain = 100 - partition;
+        }
+
+        private String getID(long id) {
+            StringBuilder idPre = new StringBuilder(32);
+            long now = CachingSystemTimer2.getNow();
+            long time = now - START_TIME;
+            if (time > GAP_LIMIT) {
+                time = time % GAP_LIMIT;
+            }
+            long index = CachingSystemTimer2.getNowIndex();
+            while (index > MAX_INDEX) {
+                long tmpNow;
+                do {
+                    try {
+                        Thread.sleep(1);
+                    } catch (InterruptedException e) {
+                        // nothing to do
+                    }
+                    tmpNow = CachingSystemTimer2.getNow();
+                } while (tmpNow == now);
+                time = tmpNow - START_TIME;
+                index = CachingSystemTimer2.getNowIndex();
+            }
+            idPre.append(time);
+            idPre.append(machNo);
+            if (index < 10L) {
+                idPre.append("000");
+            } else if (index < 100) {
+                idPre.append("00");
+            } else if (index < 1000) {
+                idPre.append("0");
+            }
+            idPre.append(index);
+            long mod;
+            if (0 != id) {
+                mod = id % partition;
+                if (mod < 10) {
+                    idPre.append("0");
+                }
+            } else {
+                mod = (long) partition + ThreadLocalRandom.current().nextInt(remain);
+            }
+            idPre.append(mod);
+            return idPre.toString();
+        }
+    }
+}
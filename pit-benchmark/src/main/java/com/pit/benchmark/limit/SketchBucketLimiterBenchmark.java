@@ -0,0 +1,111 @@
+package com.pit.benchmark.limit;
+
+import com.pit.core.limit.BucketLimiter;
+import com.pit.core.limit.SketchBucketLimiter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link BucketLimiter}(guava cache + 每个 key 一个 AtomicInteger) 与 {@link SketchBucketLimiter}(count-min sketch)
+ * 在 1、8、32 线程下的吞吐, key 按 zipf(1) 分布
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SketchBucketLimiterBenchmark {
+    private static final int KEYS = 20000;
+    private static final int REQUESTS = 1 << 16;
+
+    private BucketLimiter bucketLimiter;
+    private SketchBucketLimiter sketchBucketLimiter;
+    private String[] keys;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        private int next;
+
+        private int next() {
+            return next++ & (REQUESTS - 1);
+        }
+    }
+
+    @Setup
+    public void setUp() {
+        bucketLimiter = BucketLimiter.create(KEYS, 1, TimeUnit.HOURS);
+        sketchBucketLimiter = SketchBucketLimiter.create(1, TimeUnit.HOURS);
+        keys = zipfKeys(new Random(1));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean bucket1(Cursor cursor) {
+        return bucketLimiter.tryAcquireIncrement(keys[cursor.next()], Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean bucket8(Cursor cursor) {
+        return bucketLimiter.tryAcquireIncrement(keys[cursor.next()], Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean bucket32(Cursor cursor) {
+        return bucketLimiter.tryAcquireIncrement(keys[cursor.next()], Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean sketch1(Cursor cursor) {
+        return sketchBucketLimiter.tryAcquireIncrement(keys[cursor.next()], Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean sketch8(Cursor cursor) {
+        return sketchBucketLimiter.tryAcquireIncrement(keys[cursor.next()], Integer.MAX_VALUE);
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean sketch32(Cursor cursor) {
+        return sketchBucketLimiter.tryAcquireIncrement(keys[cursor.next()], Integer.MAX_VALUE);
+    }
+
+    /**
+     * 按 zipf(1) 分布生成请求的 key
+     */
+    private static String[] zipfKeys(Random random) {
+        double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        String[] keys = new String[REQUESTS];
+        for (int i = 0; i < REQUESTS; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            keys[i] = "key" + (index < 0 ? -index - 1 : index);
+        }
+        return keys;
+    }
+}
@@ -0,0 +1,80 @@
+package com.pit.benchmark.limit;
+
+import com.pit.core.limit.RingSlideWindowLimiter;
+import com.pit.core.limit.SlideWindowLimiter;
+import com.pit.core.time.CachingSystemTimer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SlideWindowLimiter}(全局锁 + 长度为 limit 的 Long[]) 与 {@link RingSlideWindowLimiter}(时间桶环 + LongAdder)
+ * 在 1、8、32 线程下的吞吐, 包含放行与拒绝两条路径
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SlideWindowLimiterBenchmark {
+    private static final int LIMIT = 100000;
+
+    private SlideWindowLimiter slideWindowLimiter;
+    private RingSlideWindowLimiter ringSlideWindowLimiter;
+
+    @Setup
+    public void setUp() {
+        slideWindowLimiter = new SlideWindowLimiter(LIMIT, 1, TimeUnit.SECONDS);
+        ringSlideWindowLimiter = new RingSlideWindowLimiter(LIMIT, 1, TimeUnit.SECONDS, 10, new CachingSystemTimer(10));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean slideWindow1() {
+        return slideWindowLimiter.grant();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean slideWindow8() {
+        return slideWindowLimiter.grant();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean slideWindow32() {
+        return slideWindowLimiter.grant();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean ringSlideWindow1() {
+        return ringSlideWindowLimiter.grant();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public boolean ringSlideWindow8() {
+        return ringSlideWindowLimiter.grant();
+    }
+
+    @Benchmark
+    @Threads(32)
+    public boolean ringSlideWindow32() {
+        return ringSlideWindowLimiter.grant();
+    }
+}
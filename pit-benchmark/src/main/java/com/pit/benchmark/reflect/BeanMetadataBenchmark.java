@@ -0,0 +1,163 @@
+package com.pit.benchmark.reflect;
+
+import com.pit.core.reflect.BeanMetadata;
+import com.pit.core.reflect.ClassUtils;
+import lombok.Data;
+import org.apache.commons.beanutils.BeanUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.beans.BeanInfo;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对 10000 个 DTO 复制属性、按字段分组: {@link ClassUtils}({@link BeanMetadata} 缓存的编译访问器)、
+ * 改造前的反射实现(每次内省 + Method.invoke / BeanUtils.getProperty)与手写代码对比
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BeanMetadataBenchmark {
+    private static final int COUNT = 10000;
+
+    private List<Dto> list;
+
+    @Setup
+    public void setUp() {
+        list = new ArrayList<>(COUNT);
+        for (int i = 0; i < COUNT; i++) {
+            Dto dto = new Dto();
+            dto.setId(i);
+            dto.setName("name-" + i);
+            dto.setGroup("group-" + i % 100);
+            dto.setAmount(i * 10L);
+            dto.setRemark(i % 2 == 0 ? null : "remark");
+            list.add(dto);
+        }
+    }
+
+    @Benchmark
+    public List<Dto> copyProperties() throws Exception {
+        List<Dto> result = new ArrayList<>(COUNT);
+        for (Dto dto : list) {
+            Dto dest = new Dto();
+            ClassUtils.copyProperties(dest, dto);
+            result.add(dest);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Dto> legacyCopyProperties() throws Exception {
+        List<Dto> result = new ArrayList<>(COUNT);
+        for (Dto dto : list) {
+            Dto dest = new Dto();
+            legacyCopyProperties(dest, dto);
+            result.add(dest);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public List<Dto> handWrittenCopy() {
+        List<Dto> result = new ArrayList<>(COUNT);
+        for (Dto dto : list) {
+            Dto dest = new Dto();
+            dest.setId(dto.getId());
+            if (null != dto.getName()) {
+                dest.setName(dto.getName());
+            }
+            if (null != dto.getGroup()) {
+                dest.setGroup(dto.getGroup());
+            }
+            if (null != dto.getAmount()) {
+                dest.setAmount(dto.getAmount());
+            }
+            if (null != dto.getRemark()) {
+                dest.setRemark(dto.getRemark());
+            }
+            result.add(dest);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<Object, List<Dto>> assortListByField() throws Exception {
+        return ClassUtils.assortListByField(list, "group");
+    }
+
+    @Benchmark
+    public Map<Object, List<Dto>> legacyAssortListByField() throws Exception {
+        Map<Object, List<Dto>> result = new HashMap<>();
+        for (Dto dto : list) {
+            result.computeIfAbsent(BeanUtils.getProperty(dto, "group"), k -> new ArrayList<>()).add(dto);
+        }
+        return result;
+    }
+
+    @Benchmark
+    public Map<Object, List<Dto>> handWrittenAssort() {
+        Map<Object, List<Dto>> result = new HashMap<>();
+        for (Dto dto : list) {
+            result.computeIfAbsent(dto.getGroup(), k -> new ArrayList<>()).add(dto);
+        }
+        return result;
+    }
+
+    /**
+     * 改造前的 ClassUtils.copyProperties, 仅用于对比
+     */
+    private static void legacyCopyProperties(Object dest, Object orig) throws Exception {
+        Map<String, PropertyDescriptor> omap = legacyDescriptorMap(orig.getClass());
+        Map<String, PropertyDescriptor> dmap = legacyDescriptorMap(dest.getClass());
+        for (Map.Entry<String, PropertyDescriptor> entry : dmap.entrySet()) {
+            PropertyDescriptor ofield = omap.get(entry.getKey());
+            if (ofield != null) {
+                Object value = ofield.getReadMethod().invoke(orig);
+                if (value != null) {
+                    entry.getValue().getWriteMethod().invoke(dest, value);
+                }
+            }
+        }
+    }
+
+    private static Map<String, PropertyDescriptor> legacyDescriptorMap(Class<?> clazz) throws Exception {
+        Map<String, PropertyDescriptor> fs = new HashMap<>();
+        BeanInfo info = Introspector.getBeanInfo(clazz);
+        for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+            if (!"class".equals(pd.getName())) {
+                fs.put(pd.getName(), pd);
+            }
+        }
+        return fs;
+    }
+
+    @Data
+    public static class Dto {
+        private Integer id;
+        private String name;
+        private String group;
+        private Long amount;
+        private String remark;
+    }
+}
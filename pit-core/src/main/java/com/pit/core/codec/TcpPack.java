@@ -3,13 +3,16 @@ package com.pit.core.codec;
 import com.pit.core.exception.TcpPackException;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
 
 import java.math.BigInteger;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 构建tcp包，支持大小端，支持无符号
@@ -23,12 +26,104 @@ public class TcpPack {
     private static final int MAX_UNSIGNED_SHORT = 0xFFFF;
     private static final long MAX_UNSIGNED_INT = 0xFFFFFFFFL;
     private static final BigInteger MAX_UNSIGNED_LONG = BigInteger.valueOf(Long.MAX_VALUE).shiftLeft(1).add(BigInteger.ONE);
-    private ByteBuf byteBuf = ByteBufAllocator.DEFAULT.ioBuffer();
+    private final ByteBuf byteBuf;
+
+    /**
+     * byteBuf 是否由 TcpPack 分配, 只有自己分配的才在 {@link #release()} 时释放
+     */
+    private final boolean owned;
+
+    /**
+     * 自己持有的引用是否已释放, 保证只释放一次, 不会释放掉 retainedSlice/composite 持有的引用
+     */
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public TcpPack() {
+        this(ByteBufAllocator.DEFAULT);
+    }
+
+    /**
+     * 从 allocator 分配 buffer, 例如 {@link PooledByteBufAllocator#DEFAULT} </br>
+     * buffer 归 TcpPack 所有, 使用完需调用 {@link #release()}
+     *
+     * @param allocator
+     */
+    public TcpPack(ByteBufAllocator allocator) {
+        this.byteBuf = allocator.ioBuffer();
+        this.owned = true;
+    }
+
+    /**
+     * 直接写入调用方提供的 buffer, 不额外分配内存 </br>
+     * buffer 仍归调用方所有, {@link #release()} 不会释放该 buffer
+     *
+     * @param byteBuf
+     */
+    public TcpPack(ByteBuf byteBuf) {
+        this.byteBuf = byteBuf;
+        this.owned = false;
+    }
+
+    /**
+     * 使用池化 buffer 的 TcpPack, 使用完需调用 {@link #release()}
+     *
+     * @return
+     */
+    public static TcpPack pooled() {
+        return new TcpPack(PooledByteBufAllocator.DEFAULT);
+    }
 
     public ByteBuf data() {
         return byteBuf;
     }
 
+    /**
+     * 已写入数据的零拷贝切片, 引用计数 +1 </br>
+     * 切片与 TcpPack 共享内存, 调用方使用完需自行 release 切片; TcpPack 自身仍需 {@link #release()}
+     *
+     * @return
+     */
+    public ByteBuf retainedSlice() {
+        return byteBuf.retainedSlice();
+    }
+
+    /**
+     * 将多个 TcpPack 已写入的数据零拷贝组合为一个 {@link CompositeByteBuf}, 各 buffer 引用计数 +1 </br>
+     * 调用方使用完需 release 返回的 CompositeByteBuf, 各 TcpPack 仍需分别 {@link #release()}
+     *
+     * @param allocator
+     * @param packs
+     * @return
+     */
+    public static CompositeByteBuf composite(ByteBufAllocator allocator, TcpPack... packs) {
+        CompositeByteBuf composite = allocator.compositeBuffer(packs.length);
+        for (TcpPack pack : packs) {
+            composite.addComponent(true, pack.retainedSlice());
+        }
+        return composite;
+    }
+
+    /**
+     * 复制已写入数据为 byte[], 不改变 readerIndex
+     *
+     * @return
+     */
+    public byte[] toByteArray() {
+        return ByteBufUtil.getBytes(byteBuf);
+    }
+
+    /**
+     * 释放自己分配的 buffer 上 TcpPack 持有的引用, 多次调用只释放一次; 调用方提供的 buffer 不处理
+     *
+     * @return buffer 是否已回收, retainedSlice/composite 未释放时为 false
+     */
+    public boolean release() {
+        if (owned && released.compareAndSet(false, true)) {
+            return byteBuf.release();
+        }
+        return false;
+    }
+
     public TcpPack putShort(short i, boolean littleEndian) {
         if (littleEndian) {
             byteBuf.writeShortLE(i);
@@ -106,18 +201,80 @@ public class TcpPack {
         return this;
     }
 
+    /**
+     * 写入无符号 long, 大于 Long.MAX_VALUE 的值以对应的负数 long 传入, 如 {@link Long#parseUnsignedLong(String)} 的结果
+     *
+     * @param i
+     * @param littleEndian
+     * @return
+     */
+    public TcpPack putUnsignedLong(long i, boolean littleEndian) {
+        return putLong(i, littleEndian);
+    }
+
+    /**
+     * 以 varint 编码写入无符号 int, 每字节 7 位数据, 小于 128 的值只占 1 字节, 最多 5 字节 </br>
+     * 负数按无符号处理固定占 5 字节, 有符号数应使用 {@link #putSignedVarInt(int)}
+     *
+     * @param i
+     * @return
+     */
+    public TcpPack putVarInt(int i) {
+        while ((i & ~0x7F) != 0) {
+            byteBuf.writeByte((i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        byteBuf.writeByte(i);
+        return this;
+    }
+
+    /**
+     * 以 varint 编码写入无符号 long, 最多 10 字节
+     *
+     * @param i
+     * @return
+     */
+    public TcpPack putVarLong(long i) {
+        while ((i & ~0x7FL) != 0) {
+            byteBuf.writeByte(((int) i & 0x7F) | 0x80);
+            i >>>= 7;
+        }
+        byteBuf.writeByte((int) i);
+        return this;
+    }
+
+    /**
+     * 以 zigzag + varint 编码写入有符号 int, 绝对值小的负数也只占少量字节
+     *
+     * @param i
+     * @return
+     */
+    public TcpPack putSignedVarInt(int i) {
+        return putVarInt((i << 1) ^ (i >> 31));
+    }
+
+    /**
+     * 以 zigzag + varint 编码写入有符号 long
+     *
+     * @param i
+     * @return
+     */
+    public TcpPack putSignedVarLong(long i) {
+        return putVarLong((i << 1) ^ (i >> 63));
+    }
+
     public TcpPack putString(String s, boolean littleEndian) {
         if (StringUtils.isEmpty(s)) {
             s = StringUtils.EMPTY;
         }
 
-        byte[] data = s.getBytes(StandardCharsets.UTF_8);
-        int len = data.length;
+        // 直接按 UTF-8 编码写入 buffer, 不生成中间 byte[]
+        int len = ByteBufUtil.utf8Bytes(s);
         if (len > 0xFFFF) {
             throw new TcpPackException(2, "string size too large");
         }
         putUnsignedShort(len, littleEndian);
-        byteBuf.writeBytes(data);
+        ByteBufUtil.reserveAndWriteUtf8(byteBuf, s, len);
         return this;
     }
 
@@ -4,7 +4,6 @@ import com.pit.core.exception.TcpUnpackException;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.ArrayUtils;
 
 import java.math.BigInteger;
 import java.nio.charset.StandardCharsets;
@@ -12,6 +11,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 /**
  * 解tcp包，支持大小端，支持无符号
@@ -22,6 +24,8 @@ import java.util.Map;
  */
 @Slf4j
 public class TcpUnpack {
+    private static final Map<Class<?>, Supplier<?>> FACTORIES = new ConcurrentHashMap<>();
+
     private ByteBuf byteBuf;
 
     public TcpUnpack(ByteBuf byteBuf) {
@@ -99,31 +103,122 @@ public class TcpUnpack {
     }
 
     public BigInteger getUnsignedLong(boolean littleEndian) {
-        byte[] bytes = new byte[8];
-        byteBuf.readBytes(bytes);
+        long value = getLong(littleEndian);
+        if (value >= 0) {
+            return BigInteger.valueOf(value);
+        }
+        return BigInteger.valueOf(value & Long.MAX_VALUE).setBit(Long.SIZE - 1);
+    }
 
-        if (littleEndian) {
-            // 转成小端
-            ArrayUtils.reverse(bytes);
+    /**
+     * 读取无符号 long, 以 long 原样返回, 不分配对象 </br>
+     * 大于 Long.MAX_VALUE 的值表现为负数, 需用 {@link Long#toUnsignedString(long)}、{@link Long#compareUnsigned(long, long)}、
+     * {@link Long#divideUnsigned(long, long)} 等无符号方法处理
+     *
+     * @param littleEndian
+     * @return
+     */
+    public long getUnsignedLongAsLong(boolean littleEndian) {
+        return getLong(littleEndian);
+    }
+
+    /**
+     * 读取 varint 编码的无符号 int, 见 {@link TcpPack#putVarInt(int)}
+     *
+     * @return
+     */
+    public int getVarInt() {
+        int result = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = byteBuf.readByte();
+            result |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
+        }
+        throw new TcpUnpackException(2, "TcpUnpack.getVarInt : malformed varint");
+    }
+
+    /**
+     * 读取 varint 编码的无符号 long, 见 {@link TcpPack#putVarLong(long)}
+     *
+     * @return
+     */
+    public long getVarLong() {
+        long result = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = byteBuf.readByte();
+            result |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return result;
+            }
         }
+        throw new TcpUnpackException(2, "TcpUnpack.getVarLong : malformed varint");
+    }
+
+    /**
+     * 读取 zigzag + varint 编码的有符号 int, 见 {@link TcpPack#putSignedVarInt(int)}
+     *
+     * @return
+     */
+    public int getSignedVarInt() {
+        int value = getVarInt();
+        return (value >>> 1) ^ -(value & 1);
+    }
 
-        return new BigInteger(1, bytes);
+    /**
+     * 读取 zigzag + varint 编码的有符号 long, 见 {@link TcpPack#putSignedVarLong(long)}
+     *
+     * @return
+     */
+    public long getSignedVarLong() {
+        long value = getVarLong();
+        return (value >>> 1) ^ -(value & 1);
     }
 
     public String getString(boolean littleEndian) {
         int len = getUnsignedShort(littleEndian);
-        byte[] byteArray = new byte[len];
-        byteBuf.readBytes(byteArray);
-        return new String(byteArray, StandardCharsets.UTF_8);
+        // 直接从 buffer 解码, 不生成中间 byte[]
+        String s = byteBuf.toString(byteBuf.readerIndex(), len, StandardCharsets.UTF_8);
+        byteBuf.skipBytes(len);
+        return s;
+    }
+
+    /**
+     * 读取 length 字节的零拷贝切片, 引用计数 +1, 调用方使用完需 release 切片
+     *
+     * @param length
+     * @return
+     */
+    public ByteBuf readRetainedSlice(int length) {
+        return byteBuf.readRetainedSlice(length);
     }
 
     public void unmarshal(Unmarshallable m) {
         m.unmarshal(this);
     }
 
+    /**
+     * 注册 Unmarshallable 类型的工厂, 注册后 {@link #unmarshalList(Class, boolean)} 不再反射创建对象
+     *
+     * @param clz
+     * @param factory
+     * @param <T>
+     */
+    public static <T extends Unmarshallable> void registerFactory(Class<T> clz, Supplier<T> factory) {
+        FACTORIES.put(clz, factory);
+    }
+
     public <T extends Unmarshallable> List<T> unmarshalList(Class<T> clz, boolean littleEndian) {
-        long size = getUnsignedInt(littleEndian);
-        List<T> list = new ArrayList<>();
+        // 只能通过 registerFactory 注册, 其签名保证 clz 对应的工厂创建的是 T
+        @SuppressWarnings("unchecked")
+        Supplier<T> factory = (Supplier<T>) FACTORIES.get(clz);
+        if (null != factory) {
+            return unmarshalList(factory, littleEndian);
+        }
+
+        int size = readSize(littleEndian);
+        List<T> list = new ArrayList<>(initialCapacity(size));
         try {
             for (int i = 0; i < size; i++) {
                 T unmarshallable = clz.newInstance();
@@ -136,9 +231,97 @@ public class TcpUnpack {
         return list;
     }
 
-    public List<Long> unmarshalUnsignedIntList(boolean littleEndian) {
+    /**
+     * 通过 factory 创建元素, 不使用反射
+     *
+     * @param factory
+     * @param littleEndian
+     * @param <T>
+     * @return
+     */
+    public <T extends Unmarshallable> List<T> unmarshalList(Supplier<T> factory, boolean littleEndian) {
+        int size = readSize(littleEndian);
+        List<T> list = new ArrayList<>(initialCapacity(size));
+        for (int i = 0; i < size; i++) {
+            T unmarshallable = factory.get();
+            unmarshallable.unmarshal(this);
+            list.add(unmarshallable);
+        }
+        return list;
+    }
+
+    /**
+     * 按长度前缀创建数组并填充, 格式同 {@link #unmarshalList(Class, boolean)} </br>
+     * 元素可能不占字节, 无法按剩余字节数校验长度前缀, 元素先放入容量受限的列表再转为数组
+     *
+     * @param factory      元素工厂
+     * @param arrayFactory 数组工厂, 如 Foo[]::new
+     * @param littleEndian
+     * @param <T>
+     * @return
+     */
+    public <T extends Unmarshallable> T[] unmarshalArray(Supplier<T> factory, IntFunction<T[]> arrayFactory,
+                                                         boolean littleEndian) {
+        return unmarshalArray(factory, arrayFactory, 0, littleEndian);
+    }
+
+    /**
+     * 按长度前缀创建数组并填充, 格式同 {@link #unmarshalList(Class, boolean)}
+     *
+     * @param factory        元素工厂
+     * @param arrayFactory   数组工厂, 如 Foo[]::new
+     * @param minEncodedSize 每个元素编码后至少占用的字节数, 大于 0 时按长度一次性创建数组,
+     *                       长度 * minEncodedSize 超过剩余可读字节数说明数据非法;
+     *                       不大于 0 时同 {@link #unmarshalArray(Supplier, IntFunction, boolean)}
+     * @param littleEndian
+     * @param <T>
+     * @return
+     */
+    public <T extends Unmarshallable> T[] unmarshalArray(Supplier<T> factory, IntFunction<T[]> arrayFactory,
+                                                         int minEncodedSize, boolean littleEndian) {
+        int size = readSize(littleEndian);
+        if (minEncodedSize <= 0) {
+            List<T> list = new ArrayList<>(initialCapacity(size));
+            for (int i = 0; i < size; i++) {
+                T unmarshallable = factory.get();
+                unmarshallable.unmarshal(this);
+                list.add(unmarshallable);
+            }
+            return list.toArray(arrayFactory.apply(list.size()));
+        }
+
+        // 避免按非法长度分配大数组
+        if ((long) size * minEncodedSize > byteBuf.readableBytes()) {
+            throw new TcpUnpackException(1, "TcpUnpack.unmarshalArray : size " + size + " * " + minEncodedSize
+                    + " bigger than readable bytes");
+        }
+        T[] array = arrayFactory.apply(size);
+        for (int i = 0; i < size; i++) {
+            T unmarshallable = factory.get();
+            unmarshallable.unmarshal(this);
+            array[i] = unmarshallable;
+        }
+        return array;
+    }
+
+    private int readSize(boolean littleEndian) {
         long size = getUnsignedInt(littleEndian);
-        List<Long> list = new ArrayList<>();
+        if (size > Integer.MAX_VALUE) {
+            throw new TcpUnpackException(1, "TcpUnpack : list size too large : " + size);
+        }
+        return (int) size;
+    }
+
+    /**
+     * 列表初始容量, 以剩余可读字节数为上限, 防止非法长度前缀导致分配过大
+     */
+    private int initialCapacity(int size) {
+        return Math.min(size, byteBuf.readableBytes());
+    }
+
+    public List<Long> unmarshalUnsignedIntList(boolean littleEndian) {
+        int size = readSize(littleEndian);
+        List<Long> list = new ArrayList<>(initialCapacity(size));
         for (int i = 0; i < size; i++) {
             list.add(getUnsignedInt(littleEndian));
         }
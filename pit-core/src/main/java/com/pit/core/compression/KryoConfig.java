@@ -0,0 +1,53 @@
+package com.pit.core.compression;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.Map;
+
+/**
+ * {@link KryoPool} 配置, 未设置的项使用与 {@link KryoUtil} 一致的默认值
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Data
+@Builder
+public class KryoConfig {
+    /**
+     * 关闭循环引用支持, 对象图无循环引用时可关闭以减少序列化大小和耗时 </br>
+     * 注意：开关不同的数据互相不兼容
+     */
+    private boolean referencesDisabled;
+
+    /**
+     * 是否强制要求注册类, 开启后未在 registrations 中注册的类无法序列化
+     */
+    private boolean registrationRequired;
+
+    /**
+     * 需要注册的类及其编号, 注册后序列化结果中用编号代替完整类名 </br>
+     * 编号需在各 JVM 之间保持一致, 且不能与 kryo 内置编号(0-9)冲突
+     */
+    private Map<Class<?>, Integer> registrations;
+
+    /**
+     * 池中最多保留的 Kryo/Output/Input 实例数, 默认 cpu 核数 * 4
+     */
+    private int maxPoolSize;
+
+    /**
+     * Output 初始缓冲区大小, 默认 4096 字节
+     */
+    private int outputBufferSize;
+
+    /**
+     * Output 最大缓冲区大小, 默认不限制
+     */
+    private int maxOutputBufferSize;
+
+    /**
+     * 缓冲区超过该大小的 Output/Input 使用后不放回池中, 避免池长期占用大块内存, 默认 1MB
+     */
+    private int maxPooledBufferSize;
+}
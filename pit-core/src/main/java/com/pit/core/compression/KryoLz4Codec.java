@@ -0,0 +1,226 @@
+package com.pit.core.compression;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.xxhash.XXHash32;
+import net.jpountz.xxhash.XXHashFactory;
+import org.apache.commons.codec.binary.Base64;
+
+import java.util.Arrays;
+import java.util.function.BiFunction;
+
+/**
+ * Kryo 序列化 + LZ4 压缩编解码, 线程安全 </br>
+ * 对象序列化到 {@link KryoPool} 的池化缓冲区后直接压缩到结果数组, 解码时直接解压到池化 Input 的缓冲区再反序列化,
+ * 避免 {@link KryoUtil} 与 {@link Lz4Util} 串联时的多次中间拷贝。
+ * <p>
+ * 格式: 版本(1) + 压缩方式(1) + 标识(1) + 原始长度(4) + [xxhash32 校验和(4)] + 数据 </br>
+ * 原始长度小于阈值或压缩后不变小时不压缩; 校验和基于序列化后的原始数据计算
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+public class KryoLz4Codec {
+    private static final byte VERSION = 1;
+
+    private static final byte CODEC_RAW = 0;
+    private static final byte CODEC_LZ4 = 1;
+
+    private static final byte FLAG_CHECKSUM = 1;
+
+    private static final int HEADER_LENGTH = 7;
+    private static final int CHECKSUM_LENGTH = 4;
+    private static final int CHECKSUM_SEED = 0x9747b28c;
+
+    private static final XXHash32 XX_HASH = XXHashFactory.fastestJavaInstance().hash32();
+
+    private static final KryoLz4Codec DEFAULT = new KryoLz4Codec(KryoUtil.getPool(), false, Lz4Util.DEFAULT_THRESHOLD);
+
+    private final KryoPool pool;
+    private final boolean checksum;
+    private final int threshold;
+
+    /**
+     * @param pool      Kryo 池, 编解码两端的配置需一致
+     * @param checksum  是否写入校验和, 解码时总是按数据中的标识校验
+     * @param threshold 压缩阈值, 原始长度小于该值时不压缩
+     */
+    public KryoLz4Codec(KryoPool pool, boolean checksum, int threshold) {
+        this.pool = pool;
+        this.checksum = checksum;
+        this.threshold = threshold;
+    }
+
+    /**
+     * 使用 {@link KryoUtil#getPool()}, 不写校验和
+     *
+     * @return
+     */
+    public static KryoLz4Codec getDefault() {
+        return DEFAULT;
+    }
+
+    // -----------------------------------------------
+    // 只序列化/反序列化对象
+    // 序列化的结果里，不包含类型的信息
+    // -----------------------------------------------
+
+    public <T> byte[] encode(T obj) {
+        Output output = pool.obtainOutput();
+        try {
+            pool.execute(kryo -> {
+                kryo.writeObject(output, obj);
+                return null;
+            });
+            return compress(output.getBuffer(), output.position());
+        } finally {
+            pool.freeOutput(output);
+        }
+    }
+
+    public <T> T decode(byte[] bytes, Class<T> clazz) {
+        return read(bytes, (kryo, input) -> kryo.readObject(input, clazz));
+    }
+
+    // -----------------------------------------------
+    // 序列化/反序列化对象，及类型信息
+    // -----------------------------------------------
+
+    public byte[] encodeClassAndObject(Object obj) {
+        Output output = pool.obtainOutput();
+        try {
+            pool.execute(kryo -> {
+                kryo.writeClassAndObject(output, obj);
+                return null;
+            });
+            return compress(output.getBuffer(), output.position());
+        } finally {
+            pool.freeOutput(output);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T decodeClassAndObject(byte[] bytes) {
+        return (T) read(bytes, Kryo::readClassAndObject);
+    }
+
+    // -----------------------------------------------
+    // Base64 编码的字符串
+    // -----------------------------------------------
+
+    public <T> String encodeToString(T obj) {
+        return Base64.encodeBase64String(encode(obj));
+    }
+
+    public <T> T decodeFromString(String str, Class<T> clazz) {
+        return decode(Base64.decodeBase64(str), clazz);
+    }
+
+    private <R> R read(byte[] bytes, BiFunction<Kryo, Input, R> function) {
+        Input input = pool.obtainInput();
+        byte[] pooledBuffer = input.getBuffer();
+        try {
+            decompress(bytes, input);
+            return pool.execute(kryo -> function.apply(kryo, input));
+        } finally {
+            if (input.getBuffer() == bytes) {
+                // 未压缩的数据直接从 bytes 读取, 归还前换回池化缓冲区
+                input.setBuffer(pooledBuffer);
+            }
+            pool.freeInput(input);
+        }
+    }
+
+    private byte[] compress(byte[] raw, int rawLength) {
+        int dataOffset = checksum ? HEADER_LENGTH + CHECKSUM_LENGTH : HEADER_LENGTH;
+        byte[] dest = null;
+        byte codec = CODEC_RAW;
+        int dataLength = rawLength;
+
+        if (rawLength >= threshold) {
+            LZ4Compressor compressor = Lz4Util.compressor();
+            int maxLength = compressor.maxCompressedLength(rawLength);
+            dest = new byte[dataOffset + maxLength];
+            int compressedLength = compressor.compress(raw, 0, rawLength, dest, dataOffset, maxLength);
+            if (compressedLength < rawLength) {
+                codec = CODEC_LZ4;
+                dataLength = compressedLength;
+            }
+        }
+
+        if (CODEC_RAW == codec) {
+            dest = new byte[dataOffset + rawLength];
+            System.arraycopy(raw, 0, dest, dataOffset, rawLength);
+        }
+
+        dest[0] = VERSION;
+        dest[1] = codec;
+        dest[2] = checksum ? FLAG_CHECKSUM : 0;
+        writeInt(dest, 3, rawLength);
+        if (checksum) {
+            writeInt(dest, HEADER_LENGTH, XX_HASH.hash(raw, 0, rawLength, CHECKSUM_SEED));
+        }
+
+        int length = dataOffset + dataLength;
+        return length == dest.length ? dest : Arrays.copyOf(dest, length);
+    }
+
+    /**
+     * 解压到 input 的缓冲区, 缓冲区不足时替换为新数组(过大的缓冲区归还时由池丢弃)
+     */
+    private void decompress(byte[] src, Input input) {
+        if (src.length < HEADER_LENGTH || VERSION != src[0]) {
+            throw new IllegalArgumentException("Unsupported kryo lz4 data, version: " + (src.length > 0 ? src[0] : -1));
+        }
+
+        byte codec = src[1];
+        boolean hasChecksum = (src[2] & FLAG_CHECKSUM) != 0;
+        int rawLength = readInt(src, 3);
+        int dataOffset = hasChecksum ? HEADER_LENGTH + CHECKSUM_LENGTH : HEADER_LENGTH;
+        if (rawLength < 0 || src.length < dataOffset) {
+            throw new IllegalArgumentException("Malformed kryo lz4 data, raw length: " + rawLength);
+        }
+
+        byte[] raw;
+        int rawOffset;
+        if (CODEC_RAW == codec) {
+            if (src.length < dataOffset + rawLength) {
+                throw new IllegalArgumentException("Malformed kryo lz4 data, raw length: " + rawLength);
+            }
+            raw = src;
+            rawOffset = dataOffset;
+        } else if (CODEC_LZ4 == codec) {
+            raw = input.getBuffer();
+            if (null == raw || raw.length < rawLength) {
+                raw = new byte[rawLength];
+            }
+            rawOffset = 0;
+            int length = Lz4Util.decompressor().decompress(src, dataOffset, src.length - dataOffset, raw, 0, rawLength);
+            if (length != rawLength) {
+                throw new IllegalArgumentException("Malformed kryo lz4 data, raw length: " + rawLength + ", actual: " + length);
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported kryo lz4 codec: " + codec);
+        }
+
+        if (hasChecksum && readInt(src, HEADER_LENGTH) != XX_HASH.hash(raw, rawOffset, rawLength, CHECKSUM_SEED)) {
+            throw new IllegalArgumentException("Kryo lz4 data checksum mismatch");
+        }
+
+        input.setBuffer(raw, rawOffset, rawLength);
+    }
+
+    private static void writeInt(byte[] dest, int offset, int value) {
+        dest[offset] = (byte) (value >>> 24);
+        dest[offset + 1] = (byte) (value >>> 16);
+        dest[offset + 2] = (byte) (value >>> 8);
+        dest[offset + 3] = (byte) value;
+    }
+
+    private static int readInt(byte[] src, int offset) {
+        return (src[offset] & 0xFF) << 24 | (src[offset + 1] & 0xFF) << 16
+                | (src[offset + 2] & 0xFF) << 8 | src[offset + 3] & 0xFF;
+    }
+}
@@ -0,0 +1,279 @@
+package com.pit.core.compression;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.ByteBufferInput;
+import com.esotericsoftware.kryo.io.ByteBufferOutput;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
+import com.esotericsoftware.kryo.util.Pool;
+import org.objenesis.strategy.StdInstantiatorStrategy;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Kryo 实例池, 线程安全 </br>
+ * 与 {@link ThreadLocal} 方式相比, 实例数量与并发数相关而与线程数无关, 适用于大量短生命周期线程的场景。
+ * Output/Input 缓冲区同样池化复用, 避免每次序列化重新分配和扩容
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+public class KryoPool {
+    private static final int DEFAULT_OUTPUT_BUFFER_SIZE = 4096;
+    private static final int DEFAULT_MAX_POOLED_BUFFER_SIZE = 1024 * 1024;
+
+    private final KryoConfig config;
+    private final int maxPooledBufferSize;
+
+    private final Pool<Kryo> kryoPool;
+    private final Pool<Output> outputPool;
+    private final Pool<Input> inputPool;
+
+    public KryoPool(KryoConfig config) {
+        this.config = config;
+        this.maxPooledBufferSize = config.getMaxPooledBufferSize() > 0 ?
+                config.getMaxPooledBufferSize() : DEFAULT_MAX_POOLED_BUFFER_SIZE;
+        int maxPoolSize = config.getMaxPoolSize() > 0 ?
+                config.getMaxPoolSize() : Runtime.getRuntime().availableProcessors() * 4;
+        int outputBufferSize = config.getOutputBufferSize() > 0 ?
+                config.getOutputBufferSize() : DEFAULT_OUTPUT_BUFFER_SIZE;
+        int maxOutputBufferSize = config.getMaxOutputBufferSize() > 0 ? config.getMaxOutputBufferSize() : -1;
+
+        this.kryoPool = new Pool<Kryo>(true, false, maxPoolSize) {
+            @Override
+            protected Kryo create() {
+                return newKryo();
+            }
+        };
+        this.outputPool = new Pool<Output>(true, false, maxPoolSize) {
+            @Override
+            protected Output create() {
+                return new Output(outputBufferSize, maxOutputBufferSize);
+            }
+        };
+        this.inputPool = new Pool<Input>(true, false, maxPoolSize) {
+            @Override
+            protected Input create() {
+                return new Input(outputBufferSize);
+            }
+        };
+    }
+
+    /**
+     * 按配置创建 Kryo 实例 </br>
+     * 不要轻易改变默认配置！更改之后，序列化的格式就会发生变化，
+     * 上线的同时就必须清除 Redis 里的所有缓存，否则那些缓存再回来反序列化的时候，就会报错
+     *
+     * @return
+     */
+    Kryo newKryo() {
+        Kryo kryo = new Kryo();
+        // 默认支持对象循环引用（否则会栈溢出）
+        kryo.setReferences(!config.isReferencesDisabled());
+        // 默认不强制要求注册类（注册行为无法保证多个 JVM 内同一个类的注册编号相同；而且业务系统中大量的 Class 也难以一一注册）
+        kryo.setRegistrationRequired(config.isRegistrationRequired());
+
+        Map<Class<?>, Integer> registrations = config.getRegistrations();
+        if (null != registrations) {
+            registrations.forEach(kryo::register);
+        }
+
+        // Fix the NPE bug when deserializing Collections.
+        ((DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy())
+                .setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+        return kryo;
+    }
+
+    /**
+     * 从池中借出 Kryo 执行操作, 执行完归还
+     *
+     * @param function
+     * @param <R>
+     * @return
+     */
+    public <R> R execute(Function<Kryo, R> function) {
+        Kryo kryo = kryoPool.obtain();
+        try {
+            return function.apply(kryo);
+        } finally {
+            kryoPool.free(kryo);
+        }
+    }
+
+    // -----------------------------------------------
+    // 只序列化/反序列化对象
+    // 序列化的结果里，不包含类型的信息
+    // -----------------------------------------------
+
+    /**
+     * 将对象序列化为字节数组, 使用池化缓冲区, 只在最后拷贝一次
+     *
+     * @param obj
+     * @param <T>
+     * @return
+     */
+    public <T> byte[] writeObject(T obj) {
+        Output output = outputPool.obtain();
+        try {
+            execute(kryo -> {
+                kryo.writeObject(output, obj);
+                return null;
+            });
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+        }
+    }
+
+    /**
+     * 将对象序列化写入 outputStream, 不生成中间字节数组
+     *
+     * @param obj
+     * @param outputStream
+     * @param <T>
+     */
+    public <T> void writeObject(T obj, OutputStream outputStream) {
+        Output output = outputPool.obtain();
+        try {
+            output.setOutputStream(outputStream);
+            execute(kryo -> {
+                kryo.writeObject(output, obj);
+                return null;
+            });
+            output.flush();
+        } finally {
+            output.setOutputStream(null);
+            freeOutput(output);
+        }
+    }
+
+    /**
+     * 将对象序列化写入 buffer 的当前位置, buffer 剩余空间不足时抛出 KryoException </br>
+     * kryo 会修改 buffer 的字节序, 返回前恢复调用方原有的字节序
+     *
+     * @param obj
+     * @param buffer
+     * @param <T>
+     * @return 写入字节数
+     */
+    public <T> int writeObject(T obj, ByteBuffer buffer) {
+        ByteOrder order = buffer.order();
+        try {
+            // 直接包装调用方的 buffer, 不分配缓冲区
+            ByteBufferOutput output = new ByteBufferOutput(buffer, buffer.capacity());
+            int start = buffer.position();
+            execute(kryo -> {
+                kryo.writeObject(output, obj);
+                return null;
+            });
+            output.flush();
+            return buffer.position() - start;
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    public <T> T readObject(byte[] bytes, Class<T> clazz) {
+        return readObject(bytes, 0, bytes.length, clazz);
+    }
+
+    public <T> T readObject(byte[] bytes, int offset, int count, Class<T> clazz) {
+        Input input = inputPool.obtain();
+        byte[] pooledBuffer = input.getBuffer();
+        try {
+            input.setBuffer(bytes, offset, count);
+            return execute(kryo -> kryo.readObject(input, clazz));
+        } finally {
+            input.setBuffer(pooledBuffer);
+            inputPool.free(input);
+        }
+    }
+
+    public <T> T readObject(InputStream inputStream, Class<T> clazz) {
+        Input input = inputPool.obtain();
+        try {
+            input.setInputStream(inputStream);
+            return execute(kryo -> kryo.readObject(input, clazz));
+        } finally {
+            input.setInputStream(null);
+            freeInput(input);
+        }
+    }
+
+    /**
+     * 从 buffer 的当前位置读取对象, 读取后 buffer 的 position 后移, 字节序不变
+     *
+     * @param buffer
+     * @param clazz
+     * @param <T>
+     * @return
+     */
+    public <T> T readObject(ByteBuffer buffer, Class<T> clazz) {
+        ByteOrder order = buffer.order();
+        try {
+            ByteBufferInput input = new ByteBufferInput(buffer);
+            return execute(kryo -> kryo.readObject(input, clazz));
+        } finally {
+            buffer.order(order);
+        }
+    }
+
+    // -----------------------------------------------
+    // 序列化/反序列化对象，及类型信息
+    // -----------------------------------------------
+
+    public byte[] writeClassAndObject(Object obj) {
+        Output output = outputPool.obtain();
+        try {
+            execute(kryo -> {
+                kryo.writeClassAndObject(output, obj);
+                return null;
+            });
+            return output.toBytes();
+        } finally {
+            freeOutput(output);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public <T> T readClassAndObject(byte[] bytes) {
+        Input input = inputPool.obtain();
+        byte[] pooledBuffer = input.getBuffer();
+        try {
+            input.setBuffer(bytes);
+            return (T) execute(kryo -> kryo.readClassAndObject(input));
+        } finally {
+            input.setBuffer(pooledBuffer);
+            inputPool.free(input);
+        }
+    }
+
+    Output obtainOutput() {
+        return outputPool.obtain();
+    }
+
+    Input obtainInput() {
+        return inputPool.obtain();
+    }
+
+    void freeOutput(Output output) {
+        if (output.getBuffer().length > maxPooledBufferSize) {
+            return;
+        }
+        output.reset();
+        outputPool.free(output);
+    }
+
+    void freeInput(Input input) {
+        if (input.getBuffer().length > maxPooledBufferSize) {
+            return;
+        }
+        inputPool.free(input);
+    }
+}
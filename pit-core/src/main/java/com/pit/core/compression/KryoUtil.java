@@ -3,10 +3,8 @@ package com.pit.core.compression;
 import com.esotericsoftware.kryo.Kryo;
 import com.esotericsoftware.kryo.io.Input;
 import com.esotericsoftware.kryo.io.Output;
-import com.esotericsoftware.kryo.util.DefaultInstantiatorStrategy;
 import com.pit.core.text.Charsets2;
 import org.apache.commons.codec.binary.Base64;
-import org.objenesis.strategy.StdInstantiatorStrategy;
 
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
@@ -20,40 +18,33 @@ import java.io.UnsupportedEncodingException;
  */
 public class KryoUtil {
     /**
-     * 每个线程持有各自的 Kryo 实例，Kryo非线程安全
+     * 默认 Kryo 池, 本类的序列化/反序列化方法均使用该池中的实例
      */
-    private static final ThreadLocal<Kryo> kryoLocal = new ThreadLocal<Kryo>() {
-        @Override
-        protected Kryo initialValue() {
-            Kryo kryo = new Kryo();
+    private static final KryoPool DEFAULT_POOL = new KryoPool(KryoConfig.builder().build());
 
-            /**
-             * 不要轻易改变这里的配置！更改之后，序列化的格式就会发生变化，
-             * 上线的同时就必须清除 Redis 里的所有缓存，
-             * 否则那些缓存再回来反序列化的时候，就会报错
-             */
-
-            // 支持对象循环引用（否则会栈溢出）
-            // 默认值就是 true，添加此行的目的是为了提醒维护者，不要改变这个配置
-            kryo.setReferences(true);
-
-            // 不强制要求注册类（注册行为无法保证多个 JVM 内同一个类的注册编号相同；而且业务系统中大量的 Class 也难以一一注册）
-            // 默认值就是 false，添加此行的目的是为了提醒维护者，不要改变这个配置
-            kryo.setRegistrationRequired(false);
-
-            // Fix the NPE bug when deserializing Collections.
-            ((DefaultInstantiatorStrategy) kryo.getInstantiatorStrategy())
-                    .setFallbackInstantiatorStrategy(new StdInstantiatorStrategy());
+    /**
+     * 每个线程持有各自的 Kryo 实例，Kryo非线程安全, 与 DEFAULT_POOL 使用同一配置创建
+     */
+    private static final ThreadLocal<Kryo> kryoLocal = ThreadLocal.withInitial(DEFAULT_POOL::newKryo);
 
-            return kryo;
-        }
-    };
+    /**
+     * 获得默认 Kryo 池, 不依赖线程本地变量, 适用于大量短生命周期线程
+     *
+     * @return
+     */
+    public static KryoPool getPool() {
+        return DEFAULT_POOL;
+    }
 
     /**
-     * 获得当前线程的 Kryo 实例
+     * 获得当前线程的 Kryo 实例 </br>
+     * 本类的序列化方法已改为使用 {@link #getPool()}, 不再使用该实例, 在该实例上注册的类/序列化器对本类的方法不生效。
+     * 需要注册类时使用 {@link KryoConfig#getRegistrations()} 创建 {@link KryoPool}
      *
      * @return 当前线程的 Kryo 实例
+     * @deprecated 使用 {@link #getPool()} 及 {@link KryoPool#execute(java.util.function.Function)}
      */
+    @Deprecated
     public static Kryo getInstance() {
         return kryoLocal.get();
     }
@@ -146,14 +137,7 @@ public class KryoUtil {
      * @return 序列化后的字节数组
      */
     public static <T> byte[] writeObjectToByteArray(T obj) {
-        ByteArrayOutputStream byteArrayOutputStream = new ByteArrayOutputStream();
-        Output output = new Output(byteArrayOutputStream);
-
-        Kryo kryo = getInstance();
-        kryo.writeObject(output, obj);
-        output.flush();
-
-        return byteArrayOutputStream.toByteArray();
+        return DEFAULT_POOL.writeObject(obj);
     }
 
     /**
@@ -182,11 +166,7 @@ public class KryoUtil {
      */
     @SuppressWarnings("unchecked")
     public static <T> T readObjectFromByteArray(byte[] byteArray, Class<T> clazz) {
-        ByteArrayInputStream byteArrayInputStream = new ByteArrayInputStream(byteArray);
-        Input input = new Input(byteArrayInputStream);
-
-        Kryo kryo = getInstance();
-        return kryo.readObject(input, clazz);
+        return DEFAULT_POOL.readObject(byteArray, clazz);
     }
 
     /**
@@ -1,26 +1,79 @@
 package com.pit.core.compression;
 
+import net.jpountz.lz4.LZ4Compressor;
 import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
 import net.jpountz.lz4.LZ4SafeDecompressor;
 
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
 /**
  * @author gy
  * @version 1.0
  * @date 2020/7/13.
  */
 public class Lz4Util {
-    private static LZ4SafeDecompressor decompressor = LZ4Factory.fastestJavaInstance().safeDecompressor();
+    /**
+     * 默认压缩阈值, 小于该长度的数据不压缩
+     */
+    public static final int DEFAULT_THRESHOLD = 64;
+
+    private static final byte FLAG_RAW = 0;
+    private static final byte FLAG_LZ4 = 1;
+    /**
+     * {@link #compress(byte[], int)} 头部: 1 字节标识 + 4 字节原始长度
+     */
+    private static final int HEADER_LENGTH = 5;
+
+    private static volatile LZ4Compressor compressor = LZ4Factory.fastestJavaInstance().fastCompressor();
+    private static volatile LZ4SafeDecompressor decompressor = LZ4Factory.fastestJavaInstance().safeDecompressor();
 
     /**
-     * 将 String 反序列化为原对象
-     * 利用了 Base64 编码
+     * 切换 LZ4 实现, 不同实现的压缩结果互相兼容
      *
-     * @param str   writeToString 方法序列化后的字符串
-     * @param clazz 原对象的 Class
-     * @param <T>   原对象的类型
-     * @return 原对象
+     * @param factory 如 {@link LZ4Factory#fastestInstance()}, 可用时使用 JNI 本地实现, 否则使用 unsafe 实现
      */
+    public static void useFactory(LZ4Factory factory) {
+        compressor = factory.fastCompressor();
+        decompressor = factory.safeDecompressor();
+    }
+
     /**
+     * 使用当前平台最快的 LZ4 实现(JNI > unsafe > safe java)
+     */
+    public static void useFastestInstance() {
+        useFactory(LZ4Factory.fastestInstance());
+    }
+
+    static LZ4Compressor compressor() {
+        return compressor;
+    }
+
+    static LZ4SafeDecompressor decompressor() {
+        return decompressor;
+    }
+
+    /**
+     * 压缩, 结果末尾追加 4 字节原始长度, 与 {@link #lz4Decompress(byte[])} 对应
+     *
+     * @param src
+     * @return
+     */
+    public static byte[] lz4Compress(byte[] src) {
+        int maxLen = compressor.maxCompressedLength(src.length);
+        byte[] dest = new byte[maxLen];
+        int compressedLen = compressor.compress(src, 0, src.length, dest, 0, maxLen);
+
+        byte[] result = Arrays.copyOf(dest, compressedLen + 4);
+        intToByteArray(src.length, result, compressedLen);
+        return result;
+    }
+
+    /**
+     * 解压 {@link #lz4Compress(byte[])} 的结果
      *
      * @param src
      * @return
@@ -38,6 +91,195 @@ public class Lz4Util {
         return dest;
     }
 
+    // -----------------------------------------------
+    // 带头部的压缩格式: 1 字节标识 + 4 字节原始长度 + 数据
+    // 小于阈值或压缩后不变小的数据直接存储原文
+    // -----------------------------------------------
+
+    public static byte[] compress(byte[] src) {
+        return compress(src, DEFAULT_THRESHOLD);
+    }
+
+    /**
+     * 压缩, 长度小于 threshold 或压缩后不变小时存储原文, 与 {@link #decompress(byte[])} 对应
+     *
+     * @param src
+     * @param threshold
+     * @return
+     */
+    public static byte[] compress(byte[] src, int threshold) {
+        if (src.length >= threshold) {
+            int maxLen = compressor.maxCompressedLength(src.length);
+            byte[] dest = new byte[HEADER_LENGTH + maxLen];
+            int compressedLen = compressor.compress(src, 0, src.length, dest, HEADER_LENGTH, maxLen);
+            if (compressedLen < src.length) {
+                writeHeader(dest, 0, FLAG_LZ4, src.length);
+                return Arrays.copyOf(dest, HEADER_LENGTH + compressedLen);
+            }
+        }
+
+        byte[] dest = new byte[HEADER_LENGTH + src.length];
+        writeHeader(dest, 0, FLAG_RAW, src.length);
+        System.arraycopy(src, 0, dest, HEADER_LENGTH, src.length);
+        return dest;
+    }
+
+    public static byte[] decompress(byte[] src) {
+        int len = byteArrayToInt(src, 1);
+        if (FLAG_RAW == src[0]) {
+            return Arrays.copyOfRange(src, HEADER_LENGTH, HEADER_LENGTH + len);
+        }
+
+        byte[] dest = new byte[len];
+        decompressor.decompress(src, HEADER_LENGTH, src.length - HEADER_LENGTH, dest, 0);
+        return dest;
+    }
+
+    /**
+     * {@link #compress(ByteBuffer, ByteBuffer, int)} 时 dest 需要的最大剩余空间
+     *
+     * @param length 原始长度
+     * @return
+     */
+    public static int maxCompressedLength(int length) {
+        return HEADER_LENGTH + compressor.maxCompressedLength(length);
+    }
+
+    /**
+     * 压缩 src 剩余数据写入 dest, 格式同 {@link #compress(byte[], int)}, 支持堆外 buffer, 不产生中间数组 </br>
+     * 完成后 src.position 移到 limit, dest.position 后移写入的字节数
+     *
+     * @param src
+     * @param dest      剩余空间需不小于 {@link #maxCompressedLength(int)}
+     * @param threshold
+     * @return 写入字节数
+     */
+    public static int compress(ByteBuffer src, ByteBuffer dest, int threshold) {
+        int srcLen = src.remaining();
+        int destOff = dest.position();
+        int dataLen = -1;
+        if (srcLen >= threshold) {
+            int compressedLen = compressor.compress(src, src.position(), srcLen,
+                    dest, destOff + HEADER_LENGTH, dest.remaining() - HEADER_LENGTH);
+            if (compressedLen < srcLen) {
+                writeHeader(dest, destOff, FLAG_LZ4, srcLen);
+                dataLen = compressedLen;
+            }
+        }
+
+        if (dataLen < 0) {
+            writeHeader(dest, destOff, FLAG_RAW, srcLen);
+            ByteBuffer raw = src.duplicate();
+            dest.position(destOff + HEADER_LENGTH);
+            dest.put(raw);
+            dataLen = srcLen;
+        }
+
+        src.position(src.limit());
+        dest.position(destOff + HEADER_LENGTH + dataLen);
+        return HEADER_LENGTH + dataLen;
+    }
+
+    /**
+     * src 当前位置的数据解压后的长度, 不移动 position
+     *
+     * @param src
+     * @return
+     */
+    public static int decompressedLength(ByteBuffer src) {
+        return src.getInt(src.position() + 1);
+    }
+
+    /**
+     * 解压 src 剩余数据写入 dest, 与 {@link #compress(ByteBuffer, ByteBuffer, int)} 对应 </br>
+     * 完成后 src.position 移到 limit, dest.position 后移解压后的字节数
+     *
+     * @param src
+     * @param dest 剩余空间需不小于 {@link #decompressedLength(ByteBuffer)}
+     * @return 解压后的字节数
+     */
+    public static int decompress(ByteBuffer src, ByteBuffer dest) {
+        int srcOff = src.position();
+        int len = decompressedLength(src);
+        if (FLAG_RAW == src.get(srcOff)) {
+            ByteBuffer raw = src.duplicate();
+            raw.position(srcOff + HEADER_LENGTH);
+            raw.limit(srcOff + HEADER_LENGTH + len);
+            dest.put(raw);
+        } else {
+            int destOff = dest.position();
+            decompressor.decompress(src, srcOff + HEADER_LENGTH, src.remaining() - HEADER_LENGTH,
+                    dest, destOff, dest.remaining());
+            dest.position(destOff + len);
+        }
+        src.position(src.limit());
+        return len;
+    }
+
+    // -----------------------------------------------
+    // LZ4 frame 格式, 流式压缩大数据, 与标准 lz4 命令行工具兼容
+    // -----------------------------------------------
+
+    /**
+     * 包装为 LZ4 frame 压缩流, 关闭时写入结束标记
+     *
+     * @param out
+     * @return
+     * @throws IOException
+     */
+    public static OutputStream newFrameOutputStream(OutputStream out) throws IOException {
+        return new LZ4FrameOutputStream(out, LZ4FrameOutputStream.BLOCKSIZE.SIZE_64KB);
+    }
+
+    public static InputStream newFrameInputStream(InputStream in) throws IOException {
+        return new LZ4FrameInputStream(in);
+    }
+
+    public static byte[] frameCompress(byte[] src) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(src.length / 2 + 64);
+        try (OutputStream out = newFrameOutputStream(bos)) {
+            out.write(src);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    public static byte[] frameDecompress(byte[] src) {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(src.length * 2);
+        byte[] buffer = new byte[8192];
+        try (InputStream in = newFrameInputStream(new ByteArrayInputStream(src))) {
+            int n;
+            while ((n = in.read(buffer)) != -1) {
+                bos.write(buffer, 0, n);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return bos.toByteArray();
+    }
+
+    private static void writeHeader(byte[] dest, int offset, byte flag, int length) {
+        dest[offset] = flag;
+        intToByteArray(length, dest, offset + 1);
+    }
+
+    private static void writeHeader(ByteBuffer dest, int offset, byte flag, int length) {
+        dest.put(offset, flag);
+        dest.putInt(offset + 1, length);
+    }
+
+    private static int byteArrayToInt(byte[] b, int offset) {
+        return b[offset + 3] & 0xFF | (b[offset + 2] & 0xFF) << 8 | (b[offset + 1] & 0xFF) << 16 | (b[offset] & 0xFF) << 24;
+    }
+
+    private static void intToByteArray(int value, byte[] dest, int offset) {
+        dest[offset] = (byte) (value >>> 24);
+        dest[offset + 1] = (byte) (value >>> 16);
+        dest[offset + 2] = (byte) (value >>> 8);
+        dest[offset + 3] = (byte) value;
+    }
+
     private static int byteArrayToInt(byte[] b) {
         return b[3] & 0xFF | (b[2] & 0xFF) << 8 | (b[1] & 0xFF) << 16 | (b[0] & 0xFF) << 24;
     }
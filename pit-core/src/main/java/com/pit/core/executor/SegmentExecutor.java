@@ -5,6 +5,7 @@ import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 
 import java.util.*;
+import java.util.concurrent.*;
 
 /**
  * @author gy
@@ -27,7 +28,7 @@ public class SegmentExecutor {
     public static <I, T> List<T> executeWithList(List<I> input, int segmentSize,
                                                  ListSegmentExecuteHandler<I, T> handler) {
         if (CollectionUtils.isEmpty(input)) {
-            return Collections.EMPTY_LIST;
+            return Collections.emptyList();
         }
         List<List<I>> partitions = Lists.partition(input, segmentSize);
         List<T> result = Lists.newArrayList();
@@ -40,6 +41,45 @@ public class SegmentExecutor {
         return result;
     }
 
+    /**
+     * 将 input(list) 根据 segmentSize 分段后, 在 executor 中并行调用执行 {@linkplain ListSegmentExecuteHandler#execute(List)} </br>
+     * 同时执行的分段数不超过 parallelism, 任一分段失败则取消其余分段并抛出该异常 </br>
+     * 结果按分段顺序合并返回 List
+     *
+     * @param input
+     * @param segmentSize
+     * @param handler
+     * @param executor
+     * @param parallelism
+     * @param <I>
+     * @param <T>
+     * @return
+     */
+    public static <I, T> List<T> executeWithList(List<I> input, int segmentSize,
+                                                 ListSegmentExecuteHandler<I, T> handler,
+                                                 Executor executor, int parallelism) {
+        if (CollectionUtils.isEmpty(input)) {
+            return Collections.emptyList();
+        }
+        List<List<I>> partitions = Lists.partition(input, segmentSize);
+        if (null == executor || parallelism <= 1 || partitions.size() <= 1) {
+            return executeWithList(input, segmentSize, handler);
+        }
+
+        List<Callable<List<T>>> tasks = new ArrayList<>(partitions.size());
+        for (List<I> partition : partitions) {
+            tasks.add(() -> handler.execute(partition));
+        }
+
+        List<T> result = Lists.newArrayList();
+        for (List<T> partitionResult : executeParallel(tasks, executor, parallelism)) {
+            if (CollectionUtils.isNotEmpty(partitionResult)) {
+                result.addAll(partitionResult);
+            }
+        }
+        return result;
+    }
+
     /**
      * 将 input(int) 根据 segmentSize 分段后调用执行 {@linkplain NumberSegmentExecuteHandler#execute(int, int)} </br>
      * 结果返回 List
@@ -52,7 +92,7 @@ public class SegmentExecutor {
      */
     public static <T> List<T> executeWithNumber(int input, int segmentSize, NumberSegmentExecuteHandler<T> handler) {
         if (input <= 0) {
-            return Collections.EMPTY_LIST;
+            return Collections.emptyList();
         }
 
         List<T> result = Lists.newArrayList();
@@ -82,6 +122,44 @@ public class SegmentExecutor {
         return result;
     }
 
+    /**
+     * 将 input(int) 根据 segmentSize 分段后, 在 executor 中并行调用执行 {@linkplain NumberSegmentExecuteHandler#execute(int, int)} </br>
+     * 同时执行的分段数不超过 parallelism, 任一分段失败则取消其余分段并抛出该异常 </br>
+     * 结果按分段顺序合并返回 List
+     *
+     * @param input
+     * @param segmentSize
+     * @param handler
+     * @param executor
+     * @param parallelism
+     * @param <T>
+     * @return
+     */
+    public static <T> List<T> executeWithNumber(int input, int segmentSize, NumberSegmentExecuteHandler<T> handler,
+                                                Executor executor, int parallelism) {
+        if (input <= 0) {
+            return Collections.emptyList();
+        }
+        if (null == executor || parallelism <= 1 || input <= segmentSize) {
+            return executeWithNumber(input, segmentSize, handler);
+        }
+
+        List<Callable<List<T>>> tasks = new ArrayList<>(input / segmentSize + 1);
+        for (int current = 0; current < input; current += segmentSize) {
+            int start = current;
+            int limit = Math.min(segmentSize, input - current);
+            tasks.add(() -> handler.execute(start, limit));
+        }
+
+        List<T> result = Lists.newArrayList();
+        for (List<T> partitionResult : executeParallel(tasks, executor, parallelism)) {
+            if (CollectionUtils.isNotEmpty(partitionResult)) {
+                result.addAll(partitionResult);
+            }
+        }
+        return result;
+    }
+
     /**
      * 根据 segmentSize 分批调用执行 {@linkplain NumberSegmentExecuteHandler#execute(int, int)} </br>
      * 直到 NumberSegmentExecuteHandler#execute(int, int) 返回结果为空或者小于 segmentSize
@@ -93,7 +171,7 @@ public class SegmentExecutor {
      */
     public static <T> List<T> executeWithUnlimited(int segmentSize, NumberSegmentExecuteHandler<T> handler) {
         if (segmentSize <= 0) {
-            return Collections.EMPTY_LIST;
+            return Collections.emptyList();
         }
 
         List<T> result = Lists.newArrayList();
@@ -130,7 +208,7 @@ public class SegmentExecutor {
     public static <I, K, V> Map<K, V> executeWithList(List<I> input, int segmentSize,
                                                       MapSegmentExecuteHandler<I, K, V> handler) {
         if (CollectionUtils.isEmpty(input)) {
-            return Collections.EMPTY_MAP;
+            return Collections.emptyMap();
         }
         List<List<I>> partitions = Lists.partition(input, segmentSize);
         Map<K, V> result = new HashMap<>();
@@ -143,6 +221,105 @@ public class SegmentExecutor {
         return result;
     }
 
+    /**
+     * 将 input(list) 根据 segmentSize 分段后, 在 executor 中并行调用执行 {@linkplain MapSegmentExecuteHandler#execute(List)} </br>
+     * 同时执行的分段数不超过 parallelism, 任一分段失败则取消其余分段并抛出该异常 </br>
+     * 结果按分段顺序合并返回 Map, key 重复时后面分段的结果覆盖前面的
+     *
+     * @param input
+     * @param segmentSize
+     * @param handler
+     * @param executor
+     * @param parallelism
+     * @param <I>
+     * @param <K>
+     * @param <V>
+     * @return
+     */
+    public static <I, K, V> Map<K, V> executeWithList(List<I> input, int segmentSize,
+                                                      MapSegmentExecuteHandler<I, K, V> handler,
+                                                      Executor executor, int parallelism) {
+        if (CollectionUtils.isEmpty(input)) {
+            return Collections.emptyMap();
+        }
+        List<List<I>> partitions = Lists.partition(input, segmentSize);
+        if (null == executor || parallelism <= 1 || partitions.size() <= 1) {
+            return executeWithList(input, segmentSize, handler);
+        }
+
+        List<Callable<Map<K, V>>> tasks = new ArrayList<>(partitions.size());
+        for (List<I> partition : partitions) {
+            tasks.add(() -> handler.execute(partition));
+        }
+
+        Map<K, V> result = new HashMap<>();
+        for (Map<K, V> partitionResult : executeParallel(tasks, executor, parallelism)) {
+            if (MapUtils.isNotEmpty(partitionResult)) {
+                result.putAll(partitionResult);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 在 executor 中执行 tasks, 同时提交的任务数不超过 parallelism </br>
+     * 任一任务失败时取消未完成的任务并抛出该任务的异常, 结果按 tasks 顺序返回
+     *
+     * @param tasks
+     * @param executor
+     * @param parallelism
+     * @param <R>
+     * @return
+     */
+    private static <R> List<R> executeParallel(List<Callable<R>> tasks, Executor executor, int parallelism) {
+        int size = tasks.size();
+        CompletionService<R> completionService = new ExecutorCompletionService<>(executor);
+        Map<Future<R>, Integer> futureIndexes = new HashMap<>(size * 2);
+        // 按下标写入, 结果顺序与 tasks 一致
+        List<R> results = new ArrayList<>(Collections.nCopies(size, null));
+
+        int submitted = 0;
+        int completed = 0;
+        try {
+            while (completed < size) {
+                // 补充提交, 保证在途分段数不超过 parallelism
+                while (submitted < size && submitted - completed < parallelism) {
+                    futureIndexes.put(completionService.submit(tasks.get(submitted)), submitted);
+                    submitted++;
+                }
+
+                Future<R> future = completionService.take();
+                results.set(futureIndexes.remove(future), future.get());
+                completed++;
+            }
+        } catch (ExecutionException e) {
+            cancel(futureIndexes.keySet());
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new RuntimeException(cause);
+        } catch (InterruptedException e) {
+            cancel(futureIndexes.keySet());
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("segment execute interrupted", e);
+        } catch (RuntimeException e) {
+            // executor 拒绝提交等
+            cancel(futureIndexes.keySet());
+            throw e;
+        }
+        return results;
+    }
+
+    private static void cancel(Collection<? extends Future<?>> futures) {
+        for (Future<?> future : futures) {
+            future.cancel(true);
+        }
+    }
+
     public static void main(String[] args) {
         SegmentExecutor.executeWithNumber(25, 4, new NumberSegmentExecuteHandler<String>() {
             @Override
@@ -1,10 +1,13 @@
 package com.pit.core.id;
 
 import com.pit.core.time.CachingSystemTimer2;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.commons.lang3.math.NumberUtils;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author gy
@@ -12,6 +15,7 @@ import java.util.concurrent.ThreadLocalRandom;
  * <p>
  * 用于生成分布式ID
  */
+@Slf4j
 public class IdUtils {
     /**
      * 2020-1-1 0点 开始，根据需求改动
@@ -19,14 +23,33 @@ public class IdUtils {
     private final static long startTime = 1577808000000L;
 
     /**
-     * 间隔，3年
+     * 间隔，约2.85年, 保证19位ID不超过 Long.MAX_VALUE
      */
-    private final static long gapLimit = 100000000000L;
+    private final static long gapLimit = 90000000000L;
 
-    private final static long maxIndex = 9999L;
+    /**
+     * 每毫秒 index 个数, 0-9999
+     */
+    private final static long SEQUENCE_RADIX = 10000L;
+
+    private final static int ID_LENGTH = 19;
+
+    /**
+     * 最近一次分配的序列号, 进程内共享, 保证同一进程内多个实例生成的ID不重复
+     */
+    private final static AtomicLong SEQUENCE = new AtomicLong();
+
+    /**
+     * 逻辑时钟领先系统时间的告警阈值, 毫秒
+     */
+    private final static long MAX_AHEAD_MILLIS = 1000L;
+
+    private static volatile long lastWarnTime = 0L;
 
     private String machNo;
 
+    private long machNoValue;
+
     private int partition;
 
     private int remain;
@@ -68,57 +91,124 @@ public class IdUtils {
      * <p>
      * time + machineNo + index + mod20(uid)
      * <p>
-     * 3年为期自动回收ID,因此从startTime开始计算3年后的id可能会重复
+     * 约2.85年为期自动回收ID,因此从startTime开始计算2.85年后的id可能会重复
      *
      * @param id
      * @return
      */
     public String getID(long id) {
-        StringBuilder idPre = new StringBuilder(32);
-        long now = CachingSystemTimer2.getNow();
-        long time = now - startTime;
-        while (time > gapLimit) {
-            time = now % startTime;
+        return toString(getLongID(id));
+    }
+
+    public long getLongID() {
+        return getLongID(0L);
+    }
+
+    /**
+     * 获取 long 类型ID, 布局同 {@link #getID(long)}, {@link #toString(long)} 可转为19位字符串
+     * <p>
+     * 同一毫秒内 index 用完时直接借用下一毫秒, 不阻塞调用线程
+     *
+     * @param id
+     * @return
+     */
+    public long getLongID(long id) {
+        return compose(reserve(1), id);
+    }
+
+    /**
+     * 批量获取ID, 一次原子操作预留 count 个连续序列号
+     *
+     * @param count 数量, 不超过 10000
+     * @param id
+     * @return
+     */
+    public long[] getLongIDs(int count, long id) {
+        long start = reserve(count);
+        long[] ids = new long[count];
+        for (int i = 0; i < count; i++) {
+            ids[i] = compose(start + i, id);
         }
-        long index = CachingSystemTimer2.getNowIndex();
-        while (index > maxIndex) {
-            long tmpNow = 0L;
-            do {
-                try {
-                    Thread.sleep(1);
-                } catch (InterruptedException e) {
-                    // nothing to do
-                }
-                tmpNow = CachingSystemTimer2.getNow();
-            } while (tmpNow == now);
-            time = tmpNow - startTime;
-            index = CachingSystemTimer2.getNowIndex();
+        return ids;
+    }
+
+    /**
+     * 批量获取ID (19位), 见 {@link #getLongIDs(int, long)}
+     *
+     * @param count 数量, 不超过 10000
+     * @param id
+     * @return
+     */
+    public List<String> getIDs(int count, long id) {
+        long[] ids = getLongIDs(count, id);
+        List<String> result = new ArrayList<>(count);
+        for (long item : ids) {
+            result.add(toString(item));
+        }
+        return result;
+    }
+
+    /**
+     * long 类型ID转为19位字符串, 不足19位时左补0
+     *
+     * @param id
+     * @return
+     */
+    public static String toString(long id) {
+        char[] chars = new char[ID_LENGTH];
+        for (int i = ID_LENGTH - 1; i >= 0; i--) {
+            chars[i] = (char) ('0' + id % 10);
+            id /= 10;
+        }
+        return new String(chars);
+    }
+
+    /**
+     * 预留 count 个连续序列号, 返回第一个
+     * <p>
+     * 序列号 = 毫秒时间 * SEQUENCE_RADIX + index, 只增不减, index 溢出时自然进位到下一毫秒。
+     * 时钟回拨时继续沿用已分配的最大序列号递增(逻辑时钟), 不会产生重复ID, 也不阻塞调用线程
+     */
+    private static long reserve(int count) {
+        if (count <= 0 || count > SEQUENCE_RADIX) {
+            throw new IllegalArgumentException("count is invalid: " + count);
+        }
+
+        long now = CachingSystemTimer2.getNow();
+        long nowSequence = now * SEQUENCE_RADIX;
+        for (; ; ) {
+            long prev = SEQUENCE.get();
+            long start = Math.max(prev + 1, nowSequence);
+            if (SEQUENCE.compareAndSet(prev, start + count - 1)) {
+                checkClock(prev / SEQUENCE_RADIX, now);
+                return start;
+            }
         }
-        idPre.append(time);
-        idPre.append(machNo);
-        if (index < 10L) {
-            idPre.append("000");
-        } else if (index < 100) {
-            idPre.append("00");
-        } else if (index < 1000) {
-            idPre.append("0");
+    }
+
+    /**
+     * 逻辑时钟领先系统时间过多时告警, 通常是时钟回拨或持续超过每毫秒 10000 个ID
+     */
+    private static void checkClock(long logicalTime, long now) {
+        if (logicalTime - now > MAX_AHEAD_MILLIS && now - lastWarnTime > MAX_AHEAD_MILLIS) {
+            lastWarnTime = now;
+            log.warn("IdUtils logical clock is ahead of system clock, logicalTime:{}, now:{}, clock reset count:{}",
+                    logicalTime, now, CachingSystemTimer2.getResetCount());
         }
-        idPre.append(index);
-        long mod = 0L;
+    }
+
+    private long compose(long sequence, long id) {
+        long time = (sequence / SEQUENCE_RADIX - startTime) % gapLimit;
+        long index = sequence % SEQUENCE_RADIX;
+        long mod;
         // uid!=0时候0- partition - 1
         if (0 != id) {
             mod = getPartition(id);
-            // 确保2位数
-            if (mod < 10) {
-                idPre.append("0");
-            }
         } else {
             // uid==0时候20-99
-            int random = ThreadLocalRandom.current().nextInt(remain);
-            mod = (long) partition + random;
+            mod = (long) partition + ThreadLocalRandom.current().nextInt(remain);
         }
-        idPre.append(mod);
-        return idPre.toString();
+        return time * 100000000L + machNoValue * 1000000L + index * 100L + mod;
     }
 
     public synchronized void init(String machNo, int partition) {
@@ -126,15 +216,16 @@ public class IdUtils {
             return;
         }
 
-        if (StringUtils.isEmpty(machNo) || machNo.length() != 2 || !NumberUtils.isCreatable(machNo)) {
+        if (StringUtils.isEmpty(machNo) || machNo.length() != 2 || !StringUtils.isNumeric(machNo)) {
             throw new IllegalArgumentException("machNo is invalid");
         }
 
-        this.machNo = machNo;
-
         if (partition <= 0 || partition >= 100) {
             throw new IllegalArgumentException("partition is invalid");
         }
+
+        this.machNoValue = Long.parseLong(machNo);
+        this.machNo = machNo;
         this.partition = partition;
 
         this.remain = 100 - partition;
@@ -1,6 +1,5 @@
 package com.pit.core.id;
 
-import java.util.UUID;
 import java.util.concurrent.ThreadLocalRandom;
 
 /**
@@ -10,7 +9,39 @@ import java.util.concurrent.ThreadLocalRandom;
  * @date 2020/3/20
  */
 public class UUIDUtils {
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    /**
+     * 随机 uuid + 线程 id, 格式与 UUID.toString() 一致 </br>
+     * 使用 {@link ThreadLocalRandom}, 直接按位写入字符数组, 不经过 UUID 对象和字符串拼接
+     *
+     * @return
+     */
     public static String getUUID() {
-        return new UUID(ThreadLocalRandom.current().nextLong(), ThreadLocalRandom.current().nextLong()).toString() + Thread.currentThread().getId();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long msb = random.nextLong();
+        long lsb = random.nextLong();
+
+        char[] chars = new char[36];
+        formatHex(msb >>> 32, chars, 0, 8);
+        chars[8] = '-';
+        formatHex(msb >>> 16, chars, 9, 4);
+        chars[13] = '-';
+        formatHex(msb, chars, 14, 4);
+        chars[18] = '-';
+        formatHex(lsb >>> 48, chars, 19, 4);
+        chars[23] = '-';
+        formatHex(lsb, chars, 24, 12);
+        return new StringBuilder(40).append(chars).append(Thread.currentThread().getId()).toString();
+    }
+
+    /**
+     * value 的低 digits 个 16 进制位写入 chars[offset, offset + digits)
+     */
+    private static void formatHex(long value, char[] chars, int offset, int digits) {
+        for (int i = offset + digits - 1; i >= offset; i--) {
+            chars[i] = HEX_DIGITS[(int) (value & 0xF)];
+            value >>>= 4;
+        }
     }
 }
@@ -0,0 +1,159 @@
+package com.pit.core.limit;
+
+import com.pit.core.time.CachingSystemTimer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * @author gy
+ *
+ * 无锁滑动窗口限流实现。
+ * 将时间间隔切分为 bucketCount 个时间桶组成环形数组, 每个桶使用 {@link LongAdder} 计数, 桶过期时通过 CAS 替换。
+ * 与 {@link SlideWindowLimiter} 对比：
+ * 1. 内存占用只与桶数量有关, 与 limit 无关
+ * 2. 无全局锁, 多线程下不会互相阻塞
+ * 3. 窗口按桶滑动, 精度为 period / bucketCount
+ * period 不能被 bucketCount 整除时, 桶跨度向上取整, 窗口比 period 最多长 bucketCount - 1 毫秒, 只会更严格地限流
+ */
+public class RingSlideWindowLimiter {
+    private static final int DEFAULT_BUCKET_COUNT = 10;
+
+    /**
+     * 时间桶
+     */
+    private final AtomicReferenceArray<Bucket> buckets;
+    /**
+     * 桶数量
+     */
+    private final int bucketCount;
+    /**
+     * 每个桶的时间跨度, 毫秒, period / bucketCount 向上取整, 保证窗口不短于 period
+     */
+    private final long bucketMillis;
+    /**
+     * 上限
+     */
+    private final long limit;
+    /**
+     * 缓存时间, 为 null 时使用 System.currentTimeMillis()
+     */
+    private final CachingSystemTimer timer;
+
+    /**
+     * @param limit    限制次数
+     * @param period   时间间隔
+     * @param timeUnit 间隔类型
+     */
+    public RingSlideWindowLimiter(int limit, int period, TimeUnit timeUnit) {
+        this(limit, period, timeUnit, DEFAULT_BUCKET_COUNT, null);
+    }
+
+    /**
+     * @param limit       限制次数
+     * @param period      时间间隔
+     * @param timeUnit    间隔类型
+     * @param bucketCount 桶数量, 越大窗口滑动越平滑
+     * @param timer       缓存时间, 其更新间隔应不大于 period / bucketCount; 为 null 时使用 System.currentTimeMillis()
+     */
+    public RingSlideWindowLimiter(int limit, int period, TimeUnit timeUnit, int bucketCount, CachingSystemTimer timer) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("Illegal limit Capacity: " + limit);
+        }
+
+        long periodMillis = timeUnit.toMillis(period);
+        if (periodMillis <= 0) {
+            throw new IllegalArgumentException("Illegal period Capacity: " + period);
+        }
+
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("Illegal bucketCount: " + bucketCount);
+        }
+
+        this.bucketCount = (int) Math.min(bucketCount, periodMillis);
+        this.bucketMillis = (periodMillis + this.bucketCount - 1) / this.bucketCount;
+        this.limit = limit;
+        this.timer = timer;
+        this.buckets = new AtomicReferenceArray<>(this.bucketCount);
+    }
+
+    public boolean grant() {
+        return grant(1);
+    }
+
+    /**
+     * 先计数再判断, 超出上限时回退计数, 并发下不会超发
+     *
+     * @param permits 请求数
+     * @return
+     */
+    public boolean grant(int permits) {
+        long epoch = currentTime() / bucketMillis;
+        Bucket bucket = currentBucket(epoch);
+        bucket.count.add(permits);
+
+        if (count(epoch) > limit) {
+            bucket.count.add(-permits);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 当前窗口内的请求数
+     *
+     * @return
+     */
+    public long currentCount() {
+        return count(currentTime() / bucketMillis);
+    }
+
+    private Bucket currentBucket(long epoch) {
+        int index = (int) (epoch % bucketCount);
+        for (; ; ) {
+            Bucket bucket = buckets.get(index);
+            if (null != bucket && bucket.epoch == epoch) {
+                return bucket;
+            }
+
+            if (null != bucket && bucket.epoch > epoch) {
+                // 时钟回拨, 计入较新的桶
+                return bucket;
+            }
+
+            Bucket newBucket = new Bucket(epoch);
+            if (buckets.compareAndSet(index, bucket, newBucket)) {
+                return newBucket;
+            }
+        }
+    }
+
+    private long count(long epoch) {
+        long oldest = epoch - bucketCount;
+        long sum = 0;
+        for (int i = 0; i < bucketCount; i++) {
+            Bucket bucket = buckets.get(i);
+            if (null != bucket && bucket.epoch > oldest) {
+                sum += bucket.count.sum();
+            }
+        }
+        return sum;
+    }
+
+    private long currentTime() {
+        return null == timer ? System.currentTimeMillis() : timer.getTime();
+    }
+
+    private static class Bucket {
+        /**
+         * 桶起始时间 / bucketMillis
+         */
+        private final long epoch;
+        private final LongAdder count = new LongAdder();
+
+        private Bucket(long epoch) {
+            this.epoch = epoch;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.pit.core.limit;
+
+import com.pit.core.time.CachingSystemTimer;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * @Description:
+ * 基于 count-min sketch 的按 key 限流器, 用法与 {@link BucketLimiter} 一致。
+ * 计数保存在固定大小的 depth * width 计数表中, 内存与 key 的数量无关, 不需要为每个 key 创建对象。
+ * 窗口按 duration 滚动, 估算值 = 当前窗口计数 + 上一窗口计数 * 上一窗口在滑动窗口内的剩余比例。
+ * <p>
+ * 误差：计数偏大(同一 key 高并发时可能少量偏小, 见下文), 单个 key 的估算值超出真实值 e * N / width 的概率不超过 e^-depth,
+ * N 为窗口内所有 key 的请求总数。
+ * 计数使用保守更新(只增加不高于估算值的计数), 被高频 key 抬高的计数不再增加, 实际误差远小于上述上界;
+ * 更新无锁, 同一 key 高并发更新时可能少量少计, 见 {@link #increment(Window, int)}。
+ *
+ * @Author: gy
+ * @Date: 2026/10/18
+ */
+public class SketchBucketLimiter {
+    private static final int DEFAULT_DEPTH = 4;
+    private static final int DEFAULT_WIDTH = 1 << 14;
+    private static final int MAX_COUNTERS = 1 << 28;
+
+    private final int depth;
+    /**
+     * 每行宽度, 2 的幂
+     */
+    private final int width;
+    /**
+     * 窗口时长, 毫秒
+     */
+    private final long windowMillis;
+    /**
+     * 缓存时间, 为 null 时使用 System.currentTimeMillis()
+     */
+    private final CachingSystemTimer timer;
+
+    /**
+     * 当前窗口与上一窗口, 滚动时一起替换
+     */
+    private final AtomicReference<Windows> windows;
+
+    /**
+     * @param duration 窗口时长
+     * @param timeUnit 单位时间
+     */
+    public SketchBucketLimiter(long duration, TimeUnit timeUnit) {
+        this(DEFAULT_DEPTH, DEFAULT_WIDTH, duration, timeUnit, null);
+    }
+
+    /**
+     * @param depth    计数表行数, 越大误差概率越低
+     * @param width    计数表每行宽度, 会向上取整为 2 的幂, 越大误差越小
+     * @param duration 窗口时长
+     * @param timeUnit 单位时间
+     * @param timer    缓存时间, 为 null 时使用 System.currentTimeMillis()
+     */
+    public SketchBucketLimiter(int depth, int width, long duration, TimeUnit timeUnit, CachingSystemTimer timer) {
+        if (depth <= 0 || width <= 0) {
+            throw new IllegalArgumentException("Illegal depth: " + depth + " or width: " + width);
+        }
+
+        long windowMillis = timeUnit.toMillis(duration);
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("Illegal duration: " + duration);
+        }
+
+        this.depth = depth;
+        this.width = tableSizeFor(width);
+        if ((long) depth * this.width > MAX_COUNTERS) {
+            throw new IllegalArgumentException("Illegal depth: " + depth + " * width: " + width);
+        }
+        this.windowMillis = windowMillis;
+        this.timer = timer;
+        this.windows = new AtomicReference<>(new Windows(new Window(currentTime() / windowMillis, depth * this.width), null));
+    }
+
+    public static SketchBucketLimiter create(long duration, TimeUnit timeUnit) {
+        return new SketchBucketLimiter(duration, timeUnit);
+    }
+
+    /**
+     * 是否被限流 可根据不同的key 指定数量
+     * @param key
+     * @param limitSize
+     * @return
+     */
+    public boolean tryAcquire(String key, int limitSize) {
+        return acquire(key) > limitSize;
+    }
+
+    /**
+     * 值自动 +1 后判断是否被限流 可根据不同的key 指定数量
+     * @param key
+     * @param limitSize
+     * @return
+     */
+    public boolean tryAcquireIncrement(String key, int limitSize) {
+        long now = currentTime();
+        Windows current = currentWindows(now);
+        int hash = spread(key.hashCode());
+        return increment(current.window, hash) + previousEstimate(current, hash, now) > limitSize;
+    }
+
+    /**
+     * 当前滑动窗口内 key 的估算请求数
+     * @param key
+     * @return
+     */
+    public int acquire(String key) {
+        long now = currentTime();
+        Windows current = currentWindows(now);
+        int hash = spread(key.hashCode());
+        long estimate = estimate(current.window, hash) + previousEstimate(current, hash, now);
+        return (int) Math.min(estimate, Integer.MAX_VALUE);
+    }
+
+    /**
+     * 保守更新: 读到估算值 min 后, 对不高于 min 的计数原子 +1, 高于 min 的计数已被其他 key 抬高, 不再增加 </br>
+     * 同一 key 并发更新时各自对最小计数 +1, 不会互相覆盖; 但各行并非同一时刻读取, 并发更新之间可能有行被跳过,
+     * 每次并发冲突至多少计 1, 仅在同一 key 高并发更新时发生, 相对总数可以忽略
+     *
+     * @return 本次计数后的估算值
+     */
+    private long increment(Window window, int hash) {
+        long min = estimate(window, hash);
+        for (int i = 0; i < depth; i++) {
+            int index = index(hash, i);
+            if (window.counters.get(index) <= min) {
+                window.counters.incrementAndGet(index);
+            }
+        }
+        return min + 1;
+    }
+
+    private long previousEstimate(Windows current, int hash, long now) {
+        Window prev = current.previous;
+        if (null == prev || prev.epoch != current.window.epoch - 1) {
+            return 0;
+        }
+        double remain = 1.0 - (double) (now - current.window.epoch * windowMillis) / windowMillis;
+        return remain <= 0 ? 0 : (long) (estimate(prev, hash) * remain);
+    }
+
+    private long estimate(Window window, int hash) {
+        long min = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            min = Math.min(min, window.counters.get(index(hash, i)));
+        }
+        return min;
+    }
+
+    private Windows currentWindows(long now) {
+        long epoch = now / windowMillis;
+        for (; ; ) {
+            Windows current = windows.get();
+            if (current.window.epoch >= epoch) {
+                // 时钟回拨时继续使用较新的窗口
+                return current;
+            }
+
+            Windows next = new Windows(new Window(epoch, depth * width), current.window);
+            if (windows.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private int index(int hash, int row) {
+        // 每行使用不同的哈希, 双重哈希 h1 + row * h2
+        int h = hash + row * spread(hash ^ 0x9E3779B9);
+        return row * width + (spread(h) & (width - 1));
+    }
+
+    private static int tableSizeFor(int cap) {
+        int n = -1 >>> Integer.numberOfLeadingZeros(cap - 1);
+        return n < 0 ? 1 : (n >= MAX_COUNTERS ? MAX_COUNTERS : n + 1);
+    }
+
+    private static int spread(int h) {
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    private long currentTime() {
+        return null == timer ? System.currentTimeMillis() : timer.getTime();
+    }
+
+    private static class Window {
+        /**
+         * 窗口起始时间 / windowMillis
+         */
+        private final long epoch;
+        private final AtomicLongArray counters;
+
+        private Window(long epoch, int size) {
+            this.epoch = epoch;
+            this.counters = new AtomicLongArray(size);
+        }
+    }
+
+    /**
+     * 当前窗口及上一窗口, 不可变, 保证读到的两个窗口来自同一次滚动
+     */
+    private static class Windows {
+        private final Window window;
+        /**
+         * 上一窗口, 不一定与 window 相邻
+         */
+        private final Window previous;
+
+        private Windows(Window window, Window previous) {
+            this.window = window;
+            this.previous = previous;
+        }
+    }
+}
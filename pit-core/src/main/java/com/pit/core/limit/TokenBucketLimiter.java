@@ -0,0 +1,227 @@
+package com.pit.core.limit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * @author gy
+ *
+ * 无锁令牌桶限流实现。
+ * 桶容量 capacity 决定允许的突发请求数, 令牌按 permitsPerSecond 匀速补充。
+ * 内部不保存令牌数, 只保存"理论上令牌被取完的时间点"(GCRA 算法), 单个 {@link AtomicLong} CAS 更新。
+ * 与计数、滑动窗口限流对比，不会在窗口边界集中放行或拒绝，流量更平滑。
+ * <p>
+ * 可选预热：桶满(空闲)后重新开始放行时，令牌补充速度从 permitsPerSecond / coldFactor 线性提升到 permitsPerSecond
+ */
+public class TokenBucketLimiter {
+    private static final double DEFAULT_COLD_FACTOR = 3.0;
+
+    /**
+     * 令牌被取完的理论时间点, System.nanoTime()
+     */
+    private final AtomicLong emptyAt;
+    /**
+     * 桶容量
+     */
+    private final long capacity;
+    /**
+     * 稳定状态下每个令牌的补充间隔, 纳秒
+     */
+    private final double stableInterval;
+    /**
+     * 桶容量对应的时间跨度, 纳秒
+     */
+    private final long capacityNanos;
+    /**
+     * 预热时长, 纳秒, 0 表示不预热
+     */
+    private final long warmupNanos;
+    /**
+     * 预热开始时令牌补充间隔相对稳定间隔的倍数
+     */
+    private final double coldFactor;
+    /**
+     * 预热开始时间点, 仅影响补充速度, 并发下允许覆盖
+     */
+    private volatile long warmupStart;
+
+    /**
+     * @param capacity         桶容量, 即允许的最大突发请求数
+     * @param permitsPerSecond 每秒补充令牌数
+     */
+    public TokenBucketLimiter(long capacity, double permitsPerSecond) {
+        this(capacity, permitsPerSecond, 0, TimeUnit.MILLISECONDS, DEFAULT_COLD_FACTOR);
+    }
+
+    /**
+     * @param capacity         桶容量, 即允许的最大突发请求数
+     * @param permitsPerSecond 每秒补充令牌数
+     * @param warmupPeriod     预热时长, 0 表示不预热
+     * @param timeUnit         预热时长单位
+     * @param coldFactor       预热开始时的降速倍数, 需 >= 1
+     */
+    public TokenBucketLimiter(long capacity, double permitsPerSecond, long warmupPeriod, TimeUnit timeUnit,
+                              double coldFactor) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+
+        if (!(permitsPerSecond > 0)) {
+            throw new IllegalArgumentException("Illegal permitsPerSecond: " + permitsPerSecond);
+        }
+
+        if (warmupPeriod < 0) {
+            throw new IllegalArgumentException("Illegal warmupPeriod: " + warmupPeriod);
+        }
+
+        if (coldFactor < 1) {
+            throw new IllegalArgumentException("Illegal coldFactor: " + coldFactor);
+        }
+
+        this.capacity = capacity;
+        this.stableInterval = TimeUnit.SECONDS.toNanos(1) / permitsPerSecond;
+        this.capacityNanos = (long) (stableInterval * capacity);
+        this.warmupNanos = timeUnit.toNanos(warmupPeriod);
+        this.coldFactor = coldFactor;
+
+        long now = System.nanoTime();
+        this.warmupStart = now;
+        // 初始为满桶
+        this.emptyAt = new AtomicLong(now - capacityNanos);
+    }
+
+    public static TokenBucketLimiter create(long capacity, double permitsPerSecond) {
+        return new TokenBucketLimiter(capacity, permitsPerSecond);
+    }
+
+    public static TokenBucketLimiter create(long capacity, double permitsPerSecond, long warmupPeriod, TimeUnit timeUnit) {
+        return new TokenBucketLimiter(capacity, permitsPerSecond, warmupPeriod, timeUnit, DEFAULT_COLD_FACTOR);
+    }
+
+    public boolean tryAcquire() {
+        return tryAcquire(1);
+    }
+
+    /**
+     * 获取令牌, 不等待
+     *
+     * @param permits 令牌数
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(int permits) {
+        return tryAcquire(permits, 0, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 获取令牌, 令牌不足时若能在 timeout 内补足则预占令牌并等待, 否则立即返回 false </br>
+     * 令牌预占后等待期间不响应中断, 返回前恢复线程的中断状态
+     *
+     * @param permits  令牌数
+     * @param timeout  最长等待时间
+     * @param timeUnit 等待时间单位
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(int permits, long timeout, TimeUnit timeUnit) {
+        checkPermits(permits);
+        long timeoutNanos = Math.max(0, timeUnit.toNanos(timeout));
+
+        long now;
+        long next;
+        for (; ; ) {
+            now = System.nanoTime();
+            long current = emptyAt.get();
+            long base = Math.max(current, now - capacityNanos);
+            next = base + costNanos(permits, now, current);
+            if (next - now > timeoutNanos) {
+                return false;
+            }
+
+            if (emptyAt.compareAndSet(current, next)) {
+                if (0 != warmupNanos && now - current >= capacityNanos) {
+                    warmupStart = now;
+                }
+                break;
+            }
+        }
+
+        awaitUntil(next);
+        return true;
+    }
+
+    /**
+     * 等待到 deadline, parkNanos 可能提前返回(虚假唤醒、unpark、中断), 循环直到时间到达
+     *
+     * @param deadline System.nanoTime()
+     */
+    private void awaitUntil(long deadline) {
+        boolean interrupted = false;
+        try {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, remaining);
+                // 中断状态未清除时 parkNanos 立即返回, 先清除避免空转
+                if (Thread.interrupted()) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 距离可获取 permits 个令牌还需等待的时间, 不占用令牌
+     *
+     * @param permits  令牌数
+     * @param timeUnit 返回值单位
+     * @return 0 表示当前即可获取
+     */
+    public long timeUntilAvailable(int permits, TimeUnit timeUnit) {
+        checkPermits(permits);
+        long now = System.nanoTime();
+        long current = emptyAt.get();
+        long base = Math.max(current, now - capacityNanos);
+        long waitNanos = base + costNanos(permits, now, current) - now;
+        return waitNanos > 0 ? timeUnit.convert(waitNanos, TimeUnit.NANOSECONDS) : 0;
+    }
+
+    /**
+     * 当前可用令牌数
+     *
+     * @return
+     */
+    public long availablePermits() {
+        long now = System.nanoTime();
+        long current = emptyAt.get();
+        long stored = Math.min(now - current, capacityNanos);
+        return stored > 0 ? (long) (stored / stableInterval) : 0;
+    }
+
+    /**
+     * permits 个令牌对应的时间, 预热期间每个令牌占用的时间更长, 不修改状态
+     */
+    private long costNanos(int permits, long now, long current) {
+        if (0 == warmupNanos) {
+            return (long) (stableInterval * permits);
+        }
+
+        // 桶已满说明处于空闲状态, 从 now 重新开始预热, 由 tryAcquire 在占用令牌成功后记录
+        long start = now - current >= capacityNanos ? now : warmupStart;
+        long elapsed = now - start;
+        if (elapsed >= warmupNanos) {
+            return (long) (stableInterval * permits);
+        }
+
+        double factor = coldFactor - (coldFactor - 1) * elapsed / warmupNanos;
+        return (long) (stableInterval * factor * permits);
+    }
+
+    private void checkPermits(int permits) {
+        if (permits <= 0 || permits > capacity) {
+            throw new IllegalArgumentException("Illegal permits: " + permits + ", capacity: " + capacity);
+        }
+    }
+}
@@ -1,5 +1,8 @@
 package com.pit.core.localcache;
 
+import java.util.Map;
+import java.util.Set;
+
 /**
  * 缓存回源操作接口
  *
@@ -13,4 +16,22 @@ public interface ICacheLoadDataHandler<K, V> {
      * @return
      */
     V loadData(K key);
+
+    /**
+     * 是否支持批量回源, 返回 true 时需同时覆盖 {@link #loadAll(Set)} </br>
+     * 默认不支持, 批量获取时未命中的 key 各自并行回源
+     * @return
+     */
+    default boolean supportsBulkLoad() {
+        return false;
+    }
+
+    /**
+     * 批量加载数据, 未加载到的 key 可不放入返回结果, 仅在 {@link #supportsBulkLoad()} 为 true 时调用
+     * @param keys
+     * @return
+     */
+    default Map<K, V> loadAll(Set<? extends K> keys) {
+        throw new UnsupportedOperationException();
+    }
 }
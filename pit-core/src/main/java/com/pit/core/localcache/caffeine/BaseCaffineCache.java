@@ -6,11 +6,14 @@ import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.pit.core.json.GsonUtils;
 import com.pit.core.localcache.ICacheDataLoader;
+import com.pit.core.thread.PitThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.checkerframework.checker.nullness.qual.NonNull;
 
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.*;
 import java.util.function.Supplier;
 
@@ -21,6 +24,8 @@ import java.util.function.Supplier;
  */
 @Slf4j
 public abstract class BaseCaffineCache<K, V> {
+    private static final int DEFAULT_LOAD_QUEUE_CAPACITY = 1024;
+
     protected CaffineCacheConfig cacheBuilderConfig;
 
     // 刷新线程池
@@ -63,7 +68,7 @@ public abstract class BaseCaffineCache<K, V> {
 
         if (cacheBuilderConfig.getExpireAfterAccessDuration() > 0 && cacheBuilderConfig.getExpireAfterAccessTimeUnit() != null) {
             cacheBuilder
-                    .expireAfterWrite(cacheBuilderConfig.getExpireAfterAccessDuration(), cacheBuilderConfig.getExpireAfterAccessTimeUnit());
+                    .expireAfterAccess(cacheBuilderConfig.getExpireAfterAccessDuration(), cacheBuilderConfig.getExpireAfterAccessTimeUnit());
         }
 
         if (cacheBuilderConfig.getRefreshDuration() > 0 && cacheBuilderConfig.getRefreshTimeUnit() != null) {
@@ -75,30 +80,42 @@ public abstract class BaseCaffineCache<K, V> {
             cacheBuilder.recordStats();
         }
 
-        if (null != refreshPool) {
-            cacheBuilder.executor(refreshPool);
+        if (null == refreshPool) {
+            refreshPool = newLoadPool();
         }
+        // 回源及刷新均在独立线程池中执行, 避免占用 ForkJoinPool.commonPool
+        cacheBuilder.executor(refreshPool);
 
         /**
          * 使用CacheLoader.asyncReloading，当触发回源时，触发回源的线程也不会被阻塞，回源任务会交由线程池处理，触发回源的线程会返回oldValue
          */
-        cache = cacheBuilder.buildAsync(new AsyncCacheLoader<K, V>() {
-            @Override
-            public @NonNull CompletableFuture<V> asyncLoad(@NonNull K key, @NonNull Executor executor) {
-                return CompletableFuture.supplyAsync(new Supplier<V>() {
-                    @Override
-                    public V get() {
-                        return getValueWhenExpired(key);
-                    }
-                });
-            }
-        });
+        cache = cacheBuilder.buildAsync(supportsBulkLoad() ? new BulkLoader() : new Loader());
 
         if (cacheBuilderConfig.isDisplayCacheStats()) {
             displayCacheStats();
         }
     }
 
+    /**
+     * 创建默认回源线程池, 有界队列, 队列满时拒绝, 本次 get 以 {@link RejectedExecutionException} 失败 </br>
+     * 不使用 CallerRunsPolicy: 调用线程执行回源会阻塞在 asyncLoad 中, 且绕过了 loadPoolSize 对回源并发数的限制
+     *
+     * @return
+     */
+    private ExecutorService newLoadPool() {
+        int poolSize = cacheBuilderConfig.getLoadPoolSize() > 0 ?
+                cacheBuilderConfig.getLoadPoolSize() : Runtime.getRuntime().availableProcessors();
+        int queueCapacity = cacheBuilderConfig.getLoadQueueCapacity() > 0 ?
+                cacheBuilderConfig.getLoadQueueCapacity() : DEFAULT_LOAD_QUEUE_CAPACITY;
+
+        ThreadPoolExecutor loadPool = new ThreadPoolExecutor(poolSize, poolSize,
+                60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queueCapacity), new PitThreadFactory(getName() + "-load"),
+                new ThreadPoolExecutor.AbortPolicy());
+        loadPool.allowCoreThreadTimeOut(true);
+        return loadPool;
+    }
+
     /**
      * 被构造函数调用看，可用于对配置等进行检查
      */
@@ -116,6 +133,26 @@ public abstract class BaseCaffineCache<K, V> {
         return dataHandler.loadData(key);
     }
 
+    /**
+     * batchGet 中多个key对应的value过期或不存在时调用
+     *
+     * @param keys
+     * @return
+     * @throws RuntimeException
+     */
+    protected Map<K, V> getValuesWhenExpired(Set<K> keys) {
+        return dataHandler.loadAll(keys);
+    }
+
+    /**
+     * 是否支持批量回源, 不支持时 batchGet 中未命中的 key 各自在回源线程池中并行回源
+     *
+     * @return
+     */
+    protected boolean supportsBulkLoad() {
+        return dataHandler.supportsBulkLoad();
+    }
+
     public CompletableFuture<V> get(K key) throws ExecutionException {
         return getCache().get(key);
     }
@@ -124,6 +161,19 @@ public abstract class BaseCaffineCache<K, V> {
         return getCache().getAll(keys);
     }
 
+    /**
+     * 移除 key, 正在进行的回源结果不会再写入缓存
+     *
+     * @param key
+     */
+    public void remove(K key) {
+        getCache().synchronous().invalidate(key);
+    }
+
+    public void clearAll() {
+        getCache().synchronous().invalidateAll();
+    }
+
     /**
      * 初始化并返回{@linkplain LoadingCache}实例
      *
@@ -156,6 +206,37 @@ public abstract class BaseCaffineCache<K, V> {
         }, displayCacheStatsInitialDelay, displayCacheStatsDelay, displayCacheStatsTimeUnit);
     }
 
+    /**
+     * 单个 key 回源, 回源任务交由线程池处理
+     */
+    private class Loader implements AsyncCacheLoader<K, V> {
+        @Override
+        public @NonNull CompletableFuture<V> asyncLoad(@NonNull K key, @NonNull Executor executor) {
+            return CompletableFuture.supplyAsync(new Supplier<V>() {
+                @Override
+                public V get() {
+                    return getValueWhenExpired(key);
+                }
+            }, executor);
+        }
+    }
+
+    /**
+     * batchGet 中未命中的 key 合并为一次回源, 并发请求相同 key 时由 caffeine 复用同一个加载结果 </br>
+     * caffeine 仅在 loader 声明了 asyncLoadAll 时走批量回源, 因此与 {@link Loader} 分开
+     */
+    private class BulkLoader extends Loader {
+        @Override
+        public @NonNull CompletableFuture<Map<@NonNull K, @NonNull V>> asyncLoadAll(
+                @NonNull Iterable<? extends @NonNull K> keys, @NonNull Executor executor) {
+            Set<K> keySet = new HashSet<>();
+            for (K key : keys) {
+                keySet.add(key);
+            }
+            return CompletableFuture.supplyAsync(() -> getValuesWhenExpired(keySet), executor);
+        }
+    }
+
     /**
      * 缓存名
      *
@@ -46,6 +46,16 @@ public class CaffineCacheConfig {
      */
     private int concurrencyLevel;
 
+    // -------------- 回源线程池相关, 构造时未传入线程池时生效
+    /**
+     * 回源线程数, 默认 cpu 核数
+     */
+    private int loadPoolSize;
+    /**
+     * 回源线程池队列长度, 默认 1024, 队列满时拒绝回源, get 以 RejectedExecutionException 失败
+     */
+    private int loadQueueCapacity;
+
     // -------------- 指标相关
     /**
      * 是否显示缓存指标
@@ -1,12 +1,18 @@
 package com.pit.core.localcache.ohc;
 
 import com.pit.core.json.GsonUtils;
+import com.pit.core.localcache.ICacheDataLoader;
 import lombok.extern.slf4j.Slf4j;
 import org.caffinitas.ohc.CacheSerializer;
 import org.caffinitas.ohc.Eviction;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
 
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+
 /**
  * @Description 基础OHC(off heap cache)实现类
  * @Author gy
@@ -97,6 +103,130 @@ public abstract class BaseOHCCache<K, V> {
         return getCache().get(key);
     }
 
+    /**
+     * 批量获取, 返回结果只包含存在的 key
+     *
+     * @param keys
+     * @return
+     */
+    public Map<K, V> getAll(Collection<K> keys) {
+        Map<K, V> result = new HashMap<>(keys.size() * 2);
+        for (K key : keys) {
+            V value = getCache().get(key);
+            if (null != value) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    public boolean put(K key, V value) {
+        return getCache().put(key, value);
+    }
+
+    /**
+     * 写入并指定过期时间, 需开启 {@link OHCConfig#getTimeouts()}
+     *
+     * @param key
+     * @param value
+     * @param ttlMillis 过期时间, 毫秒
+     * @return
+     */
+    public boolean put(K key, V value, long ttlMillis) {
+        return getCache().put(key, value, expireAt(ttlMillis));
+    }
+
+    public void putAll(Map<? extends K, ? extends V> map) {
+        getCache().putAll(map);
+    }
+
+    /**
+     * 批量写入并指定相同的过期时间, 需开启 {@link OHCConfig#getTimeouts()}
+     *
+     * @param map
+     * @param ttlMillis 过期时间, 毫秒
+     */
+    public void putAll(Map<? extends K, ? extends V> map, long ttlMillis) {
+        long expireAt = expireAt(ttlMillis);
+        for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+            getCache().put(entry.getKey(), entry.getValue(), expireAt);
+        }
+    }
+
+    /**
+     * key 不存在时写入
+     *
+     * @param key
+     * @param value
+     * @return 是否写入成功
+     */
+    public boolean putIfAbsent(K key, V value) {
+        return getCache().putIfAbsent(key, value);
+    }
+
+    /**
+     * key 不存在时写入并指定过期时间, 需开启 {@link OHCConfig#getTimeouts()}
+     *
+     * @param key
+     * @param value
+     * @param ttlMillis 过期时间, 毫秒
+     * @return 是否写入成功
+     */
+    public boolean putIfAbsent(K key, V value, long ttlMillis) {
+        return getCache().putIfAbsent(key, value, expireAt(ttlMillis));
+    }
+
+    public V computeIfAbsent(K key, ICacheDataLoader<K, V> loader) {
+        return computeIfAbsent(key, loader, 0);
+    }
+
+    /**
+     * key 不存在时通过 loader 加载并写入 </br>
+     * 配置了 {@link OHCConfig#getExecutorService()} 时使用 OHC 自带的加载, 并发加载同一个 key 只会回源一次;
+     * 否则在当前线程回源, 并发时以先写入的值为准
+     *
+     * @param key
+     * @param loader
+     * @param ttlMillis 过期时间, 毫秒, <= 0 时使用默认过期时间
+     * @return loader 返回 null 时返回 null
+     */
+    public V computeIfAbsent(K key, ICacheDataLoader<K, V> loader, long ttlMillis) {
+        V value = getCache().get(key);
+        if (null != value) {
+            return value;
+        }
+
+        long expireAt = ttlMillis > 0 ? expireAt(ttlMillis) : OHCache.USE_DEFAULT_EXPIRE_AT;
+        if (null != config.getExecutorService()) {
+            try {
+                return getCache().getWithLoaderAsync(key, loader::loadData, expireAt).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException(getName() + " load interrupted, key : " + key, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(getName() + " load error, key : " + key, e.getCause());
+            }
+        }
+
+        value = loader.loadData(key);
+        if (null == value) {
+            return null;
+        }
+        if (getCache().putIfAbsent(key, value, expireAt)) {
+            return value;
+        }
+        V exists = getCache().get(key);
+        return null != exists ? exists : value;
+    }
+
+    public boolean remove(K key) {
+        return getCache().remove(key);
+    }
+
+    private long expireAt(long ttlMillis) {
+        return System.currentTimeMillis() + ttlMillis;
+    }
+
     public OHCache<K, V> getCache() {
         return cache;
     }
@@ -0,0 +1,68 @@
+package com.pit.core.localcache.ohc.serializer;
+
+import org.caffinitas.ohc.CacheSerializer;
+
+import java.nio.ByteBuffer;
+
+/**
+ * @Description 基于 byte[] 的 OHC 序列化基类 </br>
+ * OHC 写入时先调用 {@link #serializedSize(Object)} 再调用 {@link #serialize(Object, ByteBuffer)},
+ * 这里在线程内缓存最近一次的序列化结果, 避免同一对象被序列化两次
+ * @Author gy
+ * @Date 2026-10-18
+ */
+public abstract class BytesCacheSerializer<T> implements CacheSerializer<T> {
+    private final ThreadLocal<Object[]> lastSerialized = ThreadLocal.withInitial(() -> new Object[2]);
+
+    @Override
+    public void serialize(T value, ByteBuffer buf) {
+        byte[] bytes = getBytes(value);
+        buf.putInt(bytes.length);
+        buf.put(bytes);
+
+        // 写入完成后释放引用, 避免线程长期持有对象
+        Object[] last = lastSerialized.get();
+        last[0] = null;
+        last[1] = null;
+    }
+
+    @Override
+    public T deserialize(ByteBuffer buf) {
+        byte[] bytes = new byte[buf.getInt()];
+        buf.get(bytes);
+        return fromBytes(bytes);
+    }
+
+    @Override
+    public int serializedSize(T value) {
+        return 4 + getBytes(value).length;
+    }
+
+    private byte[] getBytes(T value) {
+        Object[] last = lastSerialized.get();
+        if (last[0] == value) {
+            return (byte[]) last[1];
+        }
+
+        byte[] bytes = toBytes(value);
+        last[0] = value;
+        last[1] = bytes;
+        return bytes;
+    }
+
+    /**
+     * 对象转为 byte[]
+     *
+     * @param value
+     * @return
+     */
+    protected abstract byte[] toBytes(T value);
+
+    /**
+     * byte[] 还原为对象
+     *
+     * @param bytes
+     * @return
+     */
+    protected abstract T fromBytes(byte[] bytes);
+}
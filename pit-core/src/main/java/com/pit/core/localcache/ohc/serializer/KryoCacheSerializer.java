@@ -0,0 +1,38 @@
+package com.pit.core.localcache.ohc.serializer;
+
+import com.pit.core.compression.KryoUtil;
+import com.pit.core.compression.Lz4Util;
+
+/**
+ * @Description 基于 {@link KryoUtil} 的 OHC 序列化, 可选 {@link Lz4Util} 压缩
+ * @Author gy
+ * @Date 2026-10-18
+ */
+public class KryoCacheSerializer<T> extends BytesCacheSerializer<T> {
+    private final Class<T> clazz;
+
+    /**
+     * 是否使用 lz4 压缩, 值较大时开启可减少堆外内存占用
+     */
+    private final boolean compress;
+
+    public KryoCacheSerializer(Class<T> clazz) {
+        this(clazz, false);
+    }
+
+    public KryoCacheSerializer(Class<T> clazz, boolean compress) {
+        this.clazz = clazz;
+        this.compress = compress;
+    }
+
+    @Override
+    protected byte[] toBytes(T value) {
+        byte[] bytes = KryoUtil.writeObjectToByteArray(value);
+        return compress ? Lz4Util.lz4Compress(bytes) : bytes;
+    }
+
+    @Override
+    protected T fromBytes(byte[] bytes) {
+        return KryoUtil.readObjectFromByteArray(compress ? Lz4Util.lz4Decompress(bytes) : bytes, clazz);
+    }
+}
@@ -0,0 +1,22 @@
+package com.pit.core.localcache.ohc.serializer;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * @Description String 类型 OHC 序列化, UTF-8 编码
+ * @Author gy
+ * @Date 2026-10-18
+ */
+public class StringCacheSerializer extends BytesCacheSerializer<String> {
+    public static final StringCacheSerializer INSTANCE = new StringCacheSerializer();
+
+    @Override
+    protected byte[] toBytes(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    protected String fromBytes(byte[] bytes) {
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
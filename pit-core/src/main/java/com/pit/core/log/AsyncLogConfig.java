@@ -0,0 +1,43 @@
+package com.pit.core.log;
+
+import lombok.Builder;
+import lombok.Data;
+
+/**
+ * {@link AsyncLogService} 配置, 未设置的项使用默认值
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Data
+@Builder
+public class AsyncLogConfig {
+    /**
+     * 队列容量, 会向上取整为 2 的幂, 默认 8192
+     */
+    private int capacity;
+    /**
+     * 输出线程每批最多处理的日志数, 默认 256
+     */
+    private int batchSize;
+    /**
+     * 队列满时的处理策略, 默认 {@link LogOverflowPolicy#DROP}
+     */
+    private LogOverflowPolicy overflowPolicy;
+    /**
+     * {@link LogOverflowPolicy#SAMPLE} 的采样率, 每 sampleRate 条保留 1 条, 默认 10
+     */
+    private int sampleRate;
+    /**
+     * 队列为空时输出线程的等待时间, 默认 1 毫秒
+     */
+    private long idleWaitMillis;
+    /**
+     * 关闭时等待队列输出完成的最长时间, 默认 3000 毫秒
+     */
+    private long shutdownTimeoutMillis;
+    /**
+     * 不注册 JVM 关闭钩子, 需自行调用 {@link AsyncLogService#shutdown()}
+     */
+    private boolean shutdownHookDisabled;
+}
@@ -0,0 +1,230 @@
+package com.pit.core.log;
+
+import com.pit.core.thread.PitThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.slf4j.event.Level;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 异步日志 </br>
+ * 调用线程只做日志级别判断并将日志放入 {@link LogRingBuffer}, 参数转字符串、关键字过滤和输出都在单独的输出线程中批量完成。
+ * 注意：参数在输出线程中才转字符串, 调用后不要再修改传入的对象
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Slf4j
+public class AsyncLogService extends LogService {
+    private static final int DEFAULT_CAPACITY = 8192;
+    private static final int DEFAULT_BATCH_SIZE = 256;
+    private static final int DEFAULT_SAMPLE_RATE = 10;
+    private static final long DEFAULT_IDLE_WAIT_MILLIS = 1;
+    private static final long DEFAULT_SHUTDOWN_TIMEOUT_MILLIS = 3000;
+    private static final long BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(10);
+
+    private final LogRingBuffer<LogEvent> buffer;
+    private final int batchSize;
+    private final LogOverflowPolicy overflowPolicy;
+    private final int sampleRate;
+    /**
+     * 队列使用超过该值时开始采样
+     */
+    private final int sampleThreshold;
+    private final long idleWaitNanos;
+    private final long shutdownTimeoutMillis;
+
+    private final LongAdder droppedCount = new LongAdder();
+    /**
+     * {@link LogRingBuffer} 只允许单个消费者, 关闭后调用线程也可能取出日志, 取出时加锁
+     */
+    private final Object drainLock = new Object();
+    private final Thread drainThread;
+    private final Thread shutdownHook;
+    private volatile boolean running = true;
+
+    public AsyncLogService(AsyncLogConfig config) {
+        this(null, config);
+    }
+
+    /**
+     * @param logDicHelper 为 null 时不过滤
+     * @param config
+     */
+    public AsyncLogService(LogDicHelper logDicHelper, AsyncLogConfig config) {
+        super(logDicHelper);
+        this.buffer = new LogRingBuffer<>(config.getCapacity() > 0 ? config.getCapacity() : DEFAULT_CAPACITY);
+        this.batchSize = config.getBatchSize() > 0 ? config.getBatchSize() : DEFAULT_BATCH_SIZE;
+        this.overflowPolicy = null != config.getOverflowPolicy() ? config.getOverflowPolicy() : LogOverflowPolicy.DROP;
+        this.sampleRate = config.getSampleRate() > 0 ? config.getSampleRate() : DEFAULT_SAMPLE_RATE;
+        this.sampleThreshold = buffer.capacity() / 4 * 3;
+        this.idleWaitNanos = TimeUnit.MILLISECONDS.toNanos(
+                config.getIdleWaitMillis() > 0 ? config.getIdleWaitMillis() : DEFAULT_IDLE_WAIT_MILLIS);
+        this.shutdownTimeoutMillis = config.getShutdownTimeoutMillis() > 0 ?
+                config.getShutdownTimeoutMillis() : DEFAULT_SHUTDOWN_TIMEOUT_MILLIS;
+
+        this.drainThread = new PitThreadFactory("pit-async-log").newThread(this::drainLoop);
+        this.drainThread.setDaemon(true);
+        this.drainThread.start();
+
+        if (config.isShutdownHookDisabled()) {
+            this.shutdownHook = null;
+        } else {
+            this.shutdownHook = new Thread(this::shutdown, "pit-async-log-shutdown");
+            Runtime.getRuntime().addShutdownHook(shutdownHook);
+        }
+    }
+
+    @Override
+    protected void output(LogEvent event) {
+        if (!running) {
+            // 已关闭, 直接在调用线程输出
+            super.output(event);
+            return;
+        }
+
+        if (enqueue(event) && !running) {
+            // 入队与关闭并发, 输出线程可能已完成最后一次输出, 由调用线程输出
+            drainRemaining();
+        }
+    }
+
+    /**
+     * @return 是否已放入队列
+     */
+    private boolean enqueue(LogEvent event) {
+        switch (overflowPolicy) {
+            case BLOCK:
+                while (!buffer.offer(event)) {
+                    if (!running) {
+                        super.output(event);
+                        return false;
+                    }
+                    LockSupport.parkNanos(BLOCK_WAIT_NANOS);
+                }
+                return true;
+            case SAMPLE:
+                if (Level.ERROR != event.getLevel() && buffer.size() >= sampleThreshold
+                        && 0 != ThreadLocalRandom.current().nextInt(sampleRate)) {
+                    droppedCount.increment();
+                    return false;
+                }
+                return offerOrDrop(event);
+            default:
+                return offerOrDrop(event);
+        }
+    }
+
+    private boolean offerOrDrop(LogEvent event) {
+        if (buffer.offer(event)) {
+            return true;
+        }
+        droppedCount.increment();
+        return false;
+    }
+
+    private void drainLoop() {
+        while (running) {
+            int count;
+            synchronized (drainLock) {
+                count = buffer.drain(this::outputQuietly, batchSize);
+            }
+            if (0 == count) {
+                LockSupport.parkNanos(this, idleWaitNanos);
+            }
+        }
+
+        drainRemaining();
+    }
+
+    /**
+     * 关闭后输出剩余日志 </br>
+     * 队列按 tail 判断非空, 生产者已占位但尚未写入时等待其写入, 保证读到 running 为 true 后入队的日志都能输出
+     */
+    private void drainRemaining() {
+        synchronized (drainLock) {
+            while (!buffer.isEmpty()) {
+                if (0 == buffer.drain(this::outputQuietly, batchSize)) {
+                    Thread.yield();
+                }
+            }
+        }
+    }
+
+    private void outputQuietly(LogEvent event) {
+        try {
+            super.output(event);
+        } catch (Throwable e) {
+            // 单条日志失败不影响后续输出
+            droppedCount.increment();
+        }
+    }
+
+    /**
+     * 等待当前队列中的日志输出完成
+     *
+     * @param timeout
+     * @param timeUnit
+     * @return 超时前队列已清空返回 true
+     */
+    public boolean flush(long timeout, TimeUnit timeUnit) {
+        long deadline = System.nanoTime() + timeUnit.toNanos(timeout);
+        while (!buffer.isEmpty()) {
+            if (!drainThread.isAlive() || System.nanoTime() - deadline >= 0) {
+                return buffer.isEmpty();
+            }
+            LockSupport.parkNanos(idleWaitNanos);
+        }
+        return true;
+    }
+
+    /**
+     * 停止接收异步日志并输出队列中剩余的日志, 之后的日志在调用线程同步输出
+     */
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(drainThread);
+
+        try {
+            drainThread.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (drainThread.isAlive()) {
+            log.warn("async log shutdown timeout, remaining: {}", buffer.size());
+        }
+
+        if (null != shutdownHook && Thread.currentThread() != shutdownHook) {
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch (IllegalStateException e) {
+                // JVM 正在关闭
+            }
+        }
+    }
+
+    /**
+     * @return 当前队列中等待输出的日志数
+     */
+    public int getQueueDepth() {
+        return buffer.size();
+    }
+
+    public int getQueueCapacity() {
+        return buffer.capacity();
+    }
+
+    /**
+     * @return 因队列满、采样或输出异常丢弃的日志数
+     */
+    public long getDroppedCount() {
+        return droppedCount.sum();
+    }
+}
@@ -0,0 +1,34 @@
+package com.pit.core.log;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import org.slf4j.event.Level;
+
+/**
+ * 一条待输出的日志, 在调用线程创建, 保存调用线程的上下文
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Getter
+@AllArgsConstructor
+public class LogEvent {
+    private final Level level;
+    /**
+     * 日志标题, 如 info_log:
+     */
+    private final String title;
+    /**
+     * 调用线程的 ra
+     */
+    private final String ra;
+    /**
+     * 日志内容最大长度, <= 0 表示不限制
+     */
+    private final int maxLength;
+    /**
+     * true: objs 逐个拼接并按 notLogStartKeys 过滤; false: 只输出 objs[0]
+     */
+    private final boolean chain;
+    private final Object[] objs;
+}
@@ -0,0 +1,22 @@
+package com.pit.core.log;
+
+/**
+ * 异步日志队列满时的处理策略
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+public enum LogOverflowPolicy {
+    /**
+     * 丢弃并计数
+     */
+    DROP,
+    /**
+     * 阻塞调用线程直到队列有空位
+     */
+    BLOCK,
+    /**
+     * 队列使用超过 3/4 时按 1/sampleRate 采样 info/warn 日志, error 日志不采样, 队列满时丢弃并计数
+     */
+    SAMPLE
+}
@@ -0,0 +1,106 @@
+package com.pit.core.log;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 有界无锁环形队列, 多生产者单消费者 </br>
+ * 每个槽位带序号, 生产者 CAS 抢占 tail 后写入元素再发布序号, 消费者按序号判断槽位是否可读
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+final class LogRingBuffer<E> {
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final int mask;
+    private final AtomicReferenceArray<E> elements;
+    /**
+     * 槽位序号, 等于 index 时可写, 等于 index + 1 时可读
+     */
+    private final AtomicLongArray sequences;
+    private final AtomicLong tail = new AtomicLong();
+    /**
+     * 只有消费者线程修改
+     */
+    private volatile long head;
+
+    LogRingBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Illegal capacity: " + capacity);
+        }
+
+        int size = 1;
+        while (size < capacity && size < MAX_CAPACITY) {
+            size <<= 1;
+        }
+        this.mask = size - 1;
+        this.elements = new AtomicReferenceArray<>(size);
+        this.sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) {
+            sequences.set(i, i);
+        }
+    }
+
+    /**
+     * @param e
+     * @return 队列满时返回 false
+     */
+    boolean offer(E e) {
+        for (; ; ) {
+            long t = tail.get();
+            int index = (int) (t & mask);
+            long diff = sequences.get(index) - t;
+            if (0 == diff) {
+                if (tail.compareAndSet(t, t + 1)) {
+                    elements.lazySet(index, e);
+                    sequences.lazySet(index, t + 1);
+                    return true;
+                }
+            } else if (diff < 0) {
+                return false;
+            }
+        }
+    }
+
+    /**
+     * 批量取出, 只能由单个消费者线程调用
+     *
+     * @param consumer
+     * @param max      最多取出数量
+     * @return 取出数量
+     */
+    int drain(Consumer<E> consumer, int max) {
+        long h = head;
+        int count = 0;
+        while (count < max) {
+            int index = (int) (h & mask);
+            if (sequences.get(index) != h + 1) {
+                break;
+            }
+
+            E e = elements.get(index);
+            elements.lazySet(index, null);
+            sequences.lazySet(index, h + mask + 1);
+            head = ++h;
+            count++;
+            consumer.accept(e);
+        }
+        return count;
+    }
+
+    int size() {
+        long size = tail.get() - head;
+        return size <= 0 ? 0 : (int) Math.min(size, capacity());
+    }
+
+    boolean isEmpty() {
+        return 0 == size();
+    }
+
+    int capacity() {
+        return mask + 1;
+    }
+}
@@ -3,27 +3,43 @@ package com.pit.core.log;
 import com.pit.core.exception.ExceptionUtils;
 import com.pit.core.json.GsonUtils;
 import com.pit.core.thread.PitThreadLocalHolder;
+import com.google.gson.JsonIOException;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
-import org.apache.commons.lang3.StringUtils;
+import org.slf4j.event.Level;
 
-import java.util.HashSet;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Objects;
 import java.util.Set;
 
 @Slf4j
 public class LogService implements ILogService {
+    private static final String TRUNCATED = "...(truncated)";
+
     private LogDicHelper logDicHelper = new LogDicHelper() {
         @Override
         public Set<String> notLogStartKeys() {
-            return new HashSet<>();
+            return Collections.emptySet();
         }
     };
 
+    private volatile PrefixMatcher notLogMatcher = new PrefixMatcher(Collections.emptySet());
+
+    /**
+     * sendInfoLog/sendWarnLog/sendErrorLog 日志内容最大长度, <= 0 表示不限制
+     */
+    @Setter
+    private volatile int maxLength;
+
     public LogService() {
 
     }
 
     public LogService(LogDicHelper logDicHelper) {
-        this.logDicHelper = logDicHelper;
+        if (null != logDicHelper) {
+            this.logDicHelper = logDicHelper;
+        }
     }
 
     private static String obj2Str(Object income) {
@@ -55,53 +71,193 @@ public class LogService implements ILogService {
     }
 
     public void sendInfoLog(Object... objs) {
+        sendInfoLogWithLimit(maxLength, objs);
+    }
+
+    public void sendWarnLog(Object... objs) {
+        sendWarnLogWithLimit(maxLength, objs);
+    }
+
+    public void sendErrorLog(Object... objs) {
+        sendErrorLogWithLimit(maxLength, objs);
+    }
+
+    /**
+     * @param maxLength 日志内容最大长度, 超出部分截断且不再序列化, <= 0 表示不限制
+     * @param objs
+     */
+    public void sendInfoLogWithLimit(int maxLength, Object... objs) {
         if (!isNeedInfoLog()) {
             return;
         }
-        String msg = chainLog(objs);
-        if (null == msg) {
-            return;
-        }
-        log.info("info_log: " + ra() + msg);
+        output(new LogEvent(Level.INFO, "info_log: ", ra(), maxLength, true, objs));
     }
 
-    public void sendWarnLog(Object... objs) {
+    /**
+     * @param maxLength 日志内容最大长度, 超出部分截断且不再序列化, <= 0 表示不限制
+     * @param objs
+     */
+    public void sendWarnLogWithLimit(int maxLength, Object... objs) {
         if (!isNeedWarnLog()) {
             return;
         }
-        String msg = chainLog(objs);
-        if (null == msg) {
-            return;
-        }
-        log.warn("warn_log: " + ra() + msg);
+        output(new LogEvent(Level.WARN, "warn_log: ", ra(), maxLength, true, objs));
     }
 
-    public void sendErrorLog(Object... objs) {
+    /**
+     * @param maxLength 日志内容最大长度, 超出部分截断且不再序列化, <= 0 表示不限制
+     * @param objs
+     */
+    public void sendErrorLogWithLimit(int maxLength, Object... objs) {
         if (!isNeedErrorLog()) {
             return;
         }
-        String msg = chainLog(objs);
+        output(new LogEvent(Level.ERROR, "error_account_log: ", ra(), maxLength, true, objs));
+    }
+
+    /**
+     * 渲染并输出日志, 调用时已在调用线程完成日志级别判断, 子类可重写以改变输出方式
+     *
+     * @param event
+     */
+    protected void output(LogEvent event) {
+        String msg = render(event);
         if (null == msg) {
             return;
         }
-        log.error("error_account_log: " + ra() + msg);
+        write(event, msg);
+    }
+
+    /**
+     * 日志内容转字符串
+     *
+     * @param event
+     * @return 命中不打印的关键字时返回 null
+     */
+    protected String render(LogEvent event) {
+        return event.isChain() ? chainLog(event.getMaxLength(), event.getObjs()) : obj2Str(event.getObjs()[0]);
     }
 
-    private String chainLog(Object... objs) {
-        StringBuilder msg = new StringBuilder(1000);
+    protected void write(LogEvent event, String msg) {
+        String line = event.getTitle() + event.getRa() + msg;
+        switch (event.getLevel()) {
+            case ERROR:
+                log.error(line);
+                break;
+            case WARN:
+                log.warn(line);
+                break;
+            default:
+                log.info(line);
+                break;
+        }
+    }
+
+    /**
+     * 逐个参数转字符串拼接, 拼接长度足以判断是否命中 notLogStartKeys 时立即判断, 命中则不再转换剩余参数
+     *
+     * @param maxLength
+     * @param objs
+     * @return 命中不打印的关键字时返回 null
+     */
+    private String chainLog(int maxLength, Object... objs) {
+        PrefixMatcher matcher = notLogMatcher();
+        boolean checked = matcher.isEmpty();
+        int limit = maxLength > 0 ? maxLength : Integer.MAX_VALUE;
+
+        StringBuilder msg = new StringBuilder(Math.min(limit, 1000));
+        boolean truncated = false;
         for (Object obj : objs) {
-            msg.append(obj2Str(obj) + "|");
-        }
-        String logStr = msg.toString();
-        // 获取不需要打log的set
-        Set<String> notLogSet = logDicHelper.notLogStartKeys();
-        for (String notLogStr : notLogSet) {
-            // 不打日志的字符串如果不为空，且日志又是以它开头则不打印
-            if (StringUtils.isNotBlank(notLogStr) && logStr.startsWith(notLogStr)) {
-                return null;
+            if (!appendObj(msg, obj, limit)) {
+                truncated = true;
+                break;
             }
+            // 恰好写满时不追加分隔符, 仅分隔符超出不算截断
+            if (msg.length() < limit) {
+                msg.append('|');
+            }
+
+            if (!checked && msg.length() >= matcher.getMaxKeyLength()) {
+                if (matcher.matches(msg)) {
+                    return null;
+                }
+                checked = true;
+            }
+        }
+
+        if (!checked && matcher.matches(msg)) {
+            return null;
+        }
+
+        if (truncated) {
+            msg.append(TRUNCATED);
         }
-        return logStr;
+        return msg.toString();
+    }
+
+    /**
+     * 获取不需要打log的关键字匹配器, 关键字集合不变时复用
+     *
+     * @return
+     */
+    private PrefixMatcher notLogMatcher() {
+        Set<String> keys = logDicHelper.notLogStartKeys();
+        PrefixMatcher matcher = notLogMatcher;
+        if (keys == matcher.getSource() || Objects.equals(keys, matcher.getSource())) {
+            return matcher;
+        }
+
+        matcher = new PrefixMatcher(keys);
+        notLogMatcher = matcher;
+        return matcher;
+    }
+
+    /**
+     * 对象转字符串追加到 msg, 与 {@link #obj2Str(Object)} 结果一致
+     *
+     * @param msg
+     * @param income
+     * @param limit  msg 最大长度
+     * @return msg 未超出 limit 时返回 true
+     */
+    private static boolean appendObj(StringBuilder msg, Object income, int limit) {
+        if (msg.length() >= limit) {
+            // 已写满, 后续对象不再序列化
+            return false;
+        }
+
+        if (null == income || income instanceof Class || income instanceof String || income instanceof Throwable) {
+            String str = obj2Str(income);
+            int remain = limit - msg.length();
+            if (str.length() > remain) {
+                msg.append(str, 0, remain);
+                return false;
+            }
+            msg.append(str);
+            return true;
+        }
+
+        int start = msg.length();
+        try {
+            GsonUtils.getGson().toJson(income, new LimitedAppendable(msg, limit));
+            return true;
+        } catch (JsonIOException e) {
+            if (e.getCause() == LimitedAppendable.LIMIT_REACHED) {
+                return false;
+            }
+        } catch (Exception e) {
+            // 与 obj2Str 一致, 序列化失败使用 toString
+        }
+
+        msg.setLength(start);
+        String str = income.toString();
+        int remain = limit - start;
+        if (str.length() > remain) {
+            msg.append(str, 0, remain);
+            return false;
+        }
+        msg.append(str);
+        return true;
     }
 
     /**
@@ -111,7 +267,7 @@ public class LogService implements ILogService {
         if (!isNeedInfoLog()) {
             return;
         }
-        log.info("request_log: " + ra() + obj2Str(obj));
+        output(new LogEvent(Level.INFO, "request_log: ", ra(), 0, false, new Object[]{obj}));
     }
 
     /**
@@ -122,7 +278,7 @@ public class LogService implements ILogService {
         if (!isNeedRequestLog()) {
             return;
         }
-        log.info("request_begin_log: " + ra() + obj2Str(obj));
+        output(new LogEvent(Level.INFO, "request_begin_log: ", ra(), 0, false, new Object[]{obj}));
     }
 
     /**
@@ -133,14 +289,11 @@ public class LogService implements ILogService {
         if (!isNeedRequestLog()) {
             return;
         }
-        log.info("request_end_log: " + ra() + obj2Str(obj));
+        output(new LogEvent(Level.INFO, "request_end_log: ", ra(), 0, false, new Object[]{obj}));
     }
 
     @Override
     public boolean isNeedLog() {
-        if (null == PitThreadLocalHolder.getRequestLogFlag()) {
-            return false;
-        }
         return isNeedInfoLog();
     }
 
@@ -150,10 +303,8 @@ public class LogService implements ILogService {
      * @return
      */
     private boolean isNeedRequestLog() {
-        if (null == PitThreadLocalHolder.getRequestLogFlag()) {
-            return false;
-        }
-        return PitThreadLocalHolder.getRequestLogFlag() >= 4;
+        Integer flag = PitThreadLocalHolder.getRequestLogFlag();
+        return null != flag && flag >= 4;
     }
 
     /**
@@ -162,10 +313,8 @@ public class LogService implements ILogService {
      * @return
      */
     private boolean isNeedRALog() {
-        if (null == PitThreadLocalHolder.getRequestLogFlag()) {
-            return false;
-        }
-        return PitThreadLocalHolder.getRequestLogFlag() >= 5;
+        Integer flag = PitThreadLocalHolder.getRequestLogFlag();
+        return null != flag && flag >= 5;
     }
 
     /**
@@ -174,14 +323,8 @@ public class LogService implements ILogService {
      * @return
      */
     private boolean isNeedInfoLog() {
-        if (null == PitThreadLocalHolder.getRequestLogFlag()) {
-            return false;
-        }
-        if (PitThreadLocalHolder.getRequestLogFlag() >= 3) {
-            return true;
-        }
-
-        return false;
+        Integer flag = PitThreadLocalHolder.getRequestLogFlag();
+        return null != flag && flag >= 3;
     }
 
     /**
@@ -190,10 +333,8 @@ public class LogService implements ILogService {
      * @return
      */
     private boolean isNeedWarnLog() {
-        if (null == PitThreadLocalHolder.getRequestLogFlag()) {
-            return false;
-        }
-        return PitThreadLocalHolder.getRequestLogFlag() >= 2;
+        Integer flag = PitThreadLocalHolder.getRequestLogFlag();
+        return null != flag && flag >= 2;
     }
 
     /**
@@ -202,10 +343,8 @@ public class LogService implements ILogService {
      * @return
      */
     private boolean isNeedErrorLog() {
-        if (null == PitThreadLocalHolder.getRequestLogFlag()) {
-            return false;
-        }
-        return PitThreadLocalHolder.getRequestLogFlag() >= 1;
+        Integer flag = PitThreadLocalHolder.getRequestLogFlag();
+        return null != flag && flag >= 1;
     }
 
     /**
@@ -222,4 +361,62 @@ public class LogService implements ILogService {
     public String objToStr(Object income) {
         return obj2Str(income);
     }
+
+    /**
+     * 超出长度时抛出异常中断序列化, 避免序列化大对象后再截断
+     */
+    private static class LimitedAppendable implements Appendable {
+        private static final IOException LIMIT_REACHED = new LimitReachedException();
+
+        private final StringBuilder builder;
+        private final int limit;
+
+        private LimitedAppendable(StringBuilder builder, int limit) {
+            this.builder = builder;
+            this.limit = limit;
+        }
+
+        @Override
+        public Appendable append(CharSequence csq) throws IOException {
+            return append(csq, 0, csq.length());
+        }
+
+        @Override
+        public Appendable append(CharSequence csq, int start, int end) throws IOException {
+            int remain = limit - builder.length();
+            if (end - start > remain) {
+                if (remain > 0) {
+                    builder.append(csq, start, start + remain);
+                }
+                throw LIMIT_REACHED;
+            }
+            builder.append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public Appendable append(char c) throws IOException {
+            if (builder.length() >= limit) {
+                throw LIMIT_REACHED;
+            }
+            builder.append(c);
+            return this;
+        }
+
+        /**
+         * 仅用于中断序列化, 不填充堆栈
+         */
+        private static final class LimitReachedException extends IOException {
+            private static final long serialVersionUID = 1L;
+
+            private LimitReachedException() {
+                super("log length limit reached");
+            }
+
+            @Override
+            public synchronized Throwable fillInStackTrace() {
+                return this;
+            }
+        }
+    }
 }
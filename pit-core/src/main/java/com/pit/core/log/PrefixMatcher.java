@@ -0,0 +1,120 @@
+package com.pit.core.log;
+
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * 前缀匹配字典树, 构建后只读, 线程安全 </br>
+ * 判断字符串是否以任一关键字开头, 耗时只与最长关键字长度有关, 与关键字数量无关
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+final class PrefixMatcher {
+    /**
+     * 构建时使用的关键字集合, 用于判断关键字是否变化
+     */
+    private final Collection<String> source;
+    private final Node root;
+    private final int maxKeyLength;
+
+    PrefixMatcher(Collection<String> keys) {
+        this.source = keys;
+        Builder rootBuilder = new Builder();
+        int maxKeyLength = 0;
+        if (null != keys) {
+            for (String key : keys) {
+                // 空白关键字不参与匹配
+                if (StringUtils.isBlank(key)) {
+                    continue;
+                }
+                Builder builder = rootBuilder;
+                for (int i = 0; i < key.length(); i++) {
+                    builder = builder.children.computeIfAbsent(key.charAt(i), c -> new Builder());
+                }
+                builder.terminal = true;
+                maxKeyLength = Math.max(maxKeyLength, key.length());
+            }
+        }
+        this.root = rootBuilder.build();
+        this.maxKeyLength = maxKeyLength;
+    }
+
+    Collection<String> getSource() {
+        return source;
+    }
+
+    boolean isEmpty() {
+        return 0 == maxKeyLength;
+    }
+
+    /**
+     * 最长关键字长度, 字符串前 maxKeyLength 个字符即可决定匹配结果
+     *
+     * @return
+     */
+    int getMaxKeyLength() {
+        return maxKeyLength;
+    }
+
+    /**
+     * 是否以任一关键字开头
+     *
+     * @param str
+     * @return
+     */
+    boolean matches(CharSequence str) {
+        Node node = root;
+        for (int i = 0; i < str.length(); i++) {
+            node = node.child(str.charAt(i));
+            if (null == node) {
+                return false;
+            }
+            if (node.terminal) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static final class Node {
+        /**
+         * 子节点字符, 升序
+         */
+        private final char[] chars;
+        private final Node[] children;
+        private final boolean terminal;
+
+        private Node(char[] chars, Node[] children, boolean terminal) {
+            this.chars = chars;
+            this.children = children;
+            this.terminal = terminal;
+        }
+
+        private Node child(char c) {
+            int index = Arrays.binarySearch(chars, c);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    private static final class Builder {
+        private final Map<Character, Builder> children = new TreeMap<>();
+        private boolean terminal;
+
+        private Node build() {
+            char[] chars = new char[children.size()];
+            Node[] nodes = new Node[children.size()];
+            int i = 0;
+            for (Map.Entry<Character, Builder> entry : children.entrySet()) {
+                chars[i] = entry.getKey();
+                nodes[i] = entry.getValue().build();
+                i++;
+            }
+            return new Node(chars, nodes, terminal);
+        }
+    }
+}
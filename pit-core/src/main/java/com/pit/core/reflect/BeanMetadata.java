@@ -0,0 +1,292 @@
+package com.pit.core.reflect;
+
+import com.google.common.primitives.Primitives;
+
+import java.beans.BeanInfo;
+import java.beans.IntrospectionException;
+import java.beans.Introspector;
+import java.beans.PropertyDescriptor;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * 类的属性元数据缓存, 每个类只内省一次 </br>
+ * getter/setter 优先通过 {@link LambdaMetafactory} 编译为 {@link Function}/{@link BiConsumer},
+ * 类不可见或非 public 时使用 {@link MethodHandle}, 调用开销接近直接调用
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+public final class BeanMetadata {
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private static final ClassValue<BeanMetadata> CACHE = new ClassValue<BeanMetadata>() {
+        @Override
+        protected BeanMetadata computeValue(Class<?> type) {
+            return new BeanMetadata(type);
+        }
+    };
+
+    private final Class<?> type;
+    /**
+     * 属性名 -> 访问器, 不含 class
+     */
+    private final Map<String, PropertyAccessor> properties;
+    private final PropertyAccessor[] readableProperties;
+    /**
+     * 目标类 -> 属性复制计划
+     */
+    private final Map<Class<?>, PropertyAccessor[][]> copyPlans = new ConcurrentHashMap<>();
+
+    private BeanMetadata(Class<?> type) {
+        this.type = type;
+
+        BeanInfo info;
+        try {
+            info = Introspector.getBeanInfo(type);
+        } catch (IntrospectionException e) {
+            throw new RuntimeException("Failed getting bean info for " + type, e);
+        }
+
+        Map<String, PropertyAccessor> properties = new LinkedHashMap<>();
+        List<PropertyAccessor> readableProperties = new ArrayList<>();
+        for (PropertyDescriptor pd : info.getPropertyDescriptors()) {
+            if ("class".equals(pd.getName())) {
+                continue;
+            }
+            PropertyAccessor accessor = new PropertyAccessor(pd);
+            properties.put(pd.getName(), accessor);
+            if (accessor.isReadable()) {
+                readableProperties.add(accessor);
+            }
+        }
+        this.properties = Collections.unmodifiableMap(properties);
+        this.readableProperties = readableProperties.toArray(new PropertyAccessor[0]);
+    }
+
+    public static BeanMetadata of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    public Class<?> getType() {
+        return type;
+    }
+
+    public Map<String, PropertyAccessor> getProperties() {
+        return properties;
+    }
+
+    /**
+     * @param name
+     * @return 不存在时返回 null
+     */
+    public PropertyAccessor getProperty(String name) {
+        return properties.get(name);
+    }
+
+    /**
+     * 所有可读属性的值
+     *
+     * @param bean
+     * @return
+     */
+    public Map<String, Object> describe(Object bean) {
+        Map<String, Object> values = new HashMap<>(Math.max(16, (int) (readableProperties.length / 0.75f) + 1));
+        for (PropertyAccessor accessor : readableProperties) {
+            values.put(accessor.getName(), accessor.get(bean));
+        }
+        return values;
+    }
+
+    /**
+     * 将 orig 中不为 null 的属性值复制到 dest 中同名的可写属性
+     *
+     * @param dest
+     * @param orig 类型需为当前类
+     */
+    public void copyTo(Object dest, Object orig) {
+        PropertyAccessor[][] plan = copyPlans.computeIfAbsent(dest.getClass(), this::newCopyPlan);
+        PropertyAccessor[] reads = plan[0];
+        PropertyAccessor[] writes = plan[1];
+        for (int i = 0; i < reads.length; i++) {
+            Object value = reads[i].get(orig);
+            if (null != value) {
+                writes[i].set(dest, value);
+            }
+        }
+    }
+
+    private PropertyAccessor[][] newCopyPlan(Class<?> destType) {
+        List<PropertyAccessor> reads = new ArrayList<>();
+        List<PropertyAccessor> writes = new ArrayList<>();
+        for (PropertyAccessor write : of(destType).properties.values()) {
+            PropertyAccessor read = properties.get(write.getName());
+            if (null != read && read.isReadable() && write.isWritable()) {
+                reads.add(read);
+                writes.add(write);
+            }
+        }
+        return new PropertyAccessor[][]{reads.toArray(new PropertyAccessor[0]), writes.toArray(new PropertyAccessor[0])};
+    }
+
+    /**
+     * 单个属性的访问器
+     */
+    public static final class PropertyAccessor {
+        private final PropertyDescriptor descriptor;
+        private final Function<Object, Object> getter;
+        private final BiConsumer<Object, Object> setter;
+
+        private PropertyAccessor(PropertyDescriptor descriptor) {
+            this.descriptor = descriptor;
+            this.getter = null == descriptor.getReadMethod() ? null : compileGetter(descriptor.getReadMethod());
+            this.setter = null == descriptor.getWriteMethod() ? null : compileSetter(descriptor.getWriteMethod());
+        }
+
+        public String getName() {
+            return descriptor.getName();
+        }
+
+        public Class<?> getPropertyType() {
+            return descriptor.getPropertyType();
+        }
+
+        public PropertyDescriptor getDescriptor() {
+            return descriptor;
+        }
+
+        public boolean isReadable() {
+            return null != getter;
+        }
+
+        public boolean isWritable() {
+            return null != setter;
+        }
+
+        public Object get(Object bean) {
+            if (null == getter) {
+                throw new IllegalStateException("Property " + getName() + " is not readable");
+            }
+            return getter.apply(bean);
+        }
+
+        public void set(Object bean, Object value) {
+            if (null == setter) {
+                throw new IllegalStateException("Property " + getName() + " is not writable");
+            }
+            setter.accept(bean, value);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Function<Object, Object> compileGetter(Method method) {
+        if (isLambdaCompatible(method)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class), handle,
+                        MethodType.methodType(Primitives.wrap(method.getReturnType()), method.getDeclaringClass()));
+                return (Function<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // 使用 MethodHandle
+            }
+        }
+
+        MethodHandle handle = unreflect(method).asType(MethodType.methodType(Object.class, Object.class));
+        return bean -> {
+            try {
+                return handle.invokeExact(bean);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Error getting property by " + method, e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    private static BiConsumer<Object, Object> compileSetter(Method method) {
+        if (isLambdaCompatible(method)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class), handle,
+                        MethodType.methodType(void.class, method.getDeclaringClass(), Primitives.wrap(method.getParameterTypes()[0])));
+                return (BiConsumer<Object, Object>) site.getTarget().invokeExact();
+            } catch (Throwable e) {
+                // 使用 MethodHandle
+            }
+        }
+
+        MethodHandle handle = unreflect(method).asType(MethodType.methodType(void.class, Object.class, Object.class));
+        return (bean, value) -> {
+            try {
+                handle.invokeExact(bean, value);
+            } catch (RuntimeException | Error e) {
+                throw e;
+            } catch (Throwable e) {
+                throw new RuntimeException("Error setting property by " + method, e);
+            }
+        };
+    }
+
+    /**
+     * 生成的 lambda 类属于 BeanMetadata 的类加载器, 只有目标类 public 且对该加载器可见时才能使用
+     */
+    private static boolean isLambdaCompatible(Method method) {
+        Class<?> declaringClass = method.getDeclaringClass();
+        if (!Modifier.isPublic(declaringClass.getModifiers()) || !Modifier.isPublic(method.getModifiers())) {
+            return false;
+        }
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isVisible(type)) {
+                return false;
+            }
+        }
+        return isVisible(declaringClass) && isVisible(method.getReturnType());
+    }
+
+    private static boolean isVisible(Class<?> type) {
+        if (type.isPrimitive()) {
+            return true;
+        }
+        while (type.isArray()) {
+            type = type.getComponentType();
+        }
+        if (type.isPrimitive()) {
+            return true;
+        }
+        try {
+            return Class.forName(type.getName(), false, BeanMetadata.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    private static MethodHandle unreflect(Method method) {
+        try {
+            if (!method.isAccessible()) {
+                method.setAccessible(true);
+            }
+            return LOOKUP.unreflect(method);
+        } catch (IllegalAccessException | RuntimeException e) {
+            throw new IllegalArgumentException("Can not access " + method, e);
+        }
+    }
+}
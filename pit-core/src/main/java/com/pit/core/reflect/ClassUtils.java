@@ -1,7 +1,10 @@
 package com.pit.core.reflect;
 
+import com.pit.core.thread.PitThreadFactory;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.beanutils.BeanUtils;
+import org.apache.commons.beanutils.ConvertUtils;
+import org.apache.commons.beanutils.DynaBean;
 import org.apache.commons.lang3.StringUtils;
 
 import java.beans.BeanInfo;
@@ -96,8 +99,8 @@ public class ClassUtils {
      * with given name exists.
      */
     public static PropertyDescriptor getPropertyDescriptor(final BeanInfo info, final String propertyName) {
-        for (int i = 0; i < info.getPropertyDescriptors().length; i++) {
-            final PropertyDescriptor pd = info.getPropertyDescriptors()[i];
+        // getPropertyDescriptors 每次返回新的数组拷贝
+        for (final PropertyDescriptor pd : info.getPropertyDescriptors()) {
             if (pd.getName().equals(propertyName)) {
                 return pd;
             }
@@ -142,10 +145,12 @@ public class ClassUtils {
     }
 
     public static Object getBeanPropertyValue(Object beanObject, String propertyName) {
-        PropertyDescriptor pd = getPropertyDescriptor(beanObject.getClass(), propertyName);
+        BeanMetadata.PropertyAccessor accessor = BeanMetadata.of(beanObject.getClass()).getProperty(propertyName);
         try {
-            Method m = pd.getReadMethod();
-            return m != null ? m.invoke(beanObject, new Object[]{}) : null;
+            if (null == accessor) {
+                throw new IllegalArgumentException("no property " + propertyName);
+            }
+            return accessor.isReadable() ? accessor.get(beanObject) : null;
         } catch (Exception e) {
             log.error("bean实体中没有获取到属性" + propertyName + "值," + e.getMessage());
         }
@@ -182,14 +187,9 @@ public class ClassUtils {
 
     public static Map<String, PropertyDescriptor> getAllDescriptorMap(final Class<?> clazz) throws Exception {
         Map<String, PropertyDescriptor> fs = new HashMap<String, PropertyDescriptor>();
-        BeanInfo info = Introspector.getBeanInfo(clazz);
-        for (int i = 0; i < info.getPropertyDescriptors().length; i++) {
-            final PropertyDescriptor pd = info.getPropertyDescriptors()[i];
-            if (!"class".equals(pd.getName())) {
-                fs.put(pd.getName(), pd);
-            }
+        for (BeanMetadata.PropertyAccessor accessor : BeanMetadata.of(clazz).getProperties().values()) {
+            fs.put(accessor.getName(), accessor.getDescriptor());
         }
-
         return fs;
     }
 
@@ -201,15 +201,7 @@ public class ClassUtils {
      * @throws Exception
      */
     public static Map<String, Object> describe(Object bean) throws Exception {
-        Map<String, Object> fs = new HashMap<String, Object>();
-        BeanInfo info = Introspector.getBeanInfo(bean.getClass());
-        for (int i = 0; i < info.getPropertyDescriptors().length; i++) {
-            final PropertyDescriptor pd = info.getPropertyDescriptors()[i];
-            if (!"class".equals(pd.getName())) {
-                fs.put(pd.getName(), pd.getReadMethod().invoke(bean, new Object[]{}));
-            }
-        }
-        return fs;
+        return BeanMetadata.of(bean.getClass()).describe(bean);
     }
 
     /**
@@ -251,7 +243,24 @@ public class ClassUtils {
     }
 
     /**
-     * 分threadCount对集合list执行obj里面的method方法
+     * 在 executor 中执行 {@link #invokeMethods(List, Object, Method, int, Object...)}
+     *
+     * @param list
+     * @param obj
+     * @param method
+     * @param executeCount 错误执行后尝试次数
+     * @param executor     为 null 时使用共享线程池
+     * @param args
+     * @return
+     */
+    public static CompletableFuture<Void> invokeMethodsAsync(List<?> list, Object obj, Method method, int executeCount,
+                                                             Executor executor, Object... args) {
+        return CompletableFuture.runAsync(() -> invokeMethods(list, obj, method, executeCount, args),
+                null == executor ? SharedExecutorHolder.EXECUTOR : executor);
+    }
+
+    /**
+     * 分threadCount对集合list执行obj里面的method方法, 使用共享线程池
      *
      * @param obj
      * @param method
@@ -261,8 +270,58 @@ public class ClassUtils {
      * @throws Exception
      * @author Giant
      */
-    @SuppressWarnings({"rawtypes", "unchecked"})
+    @SuppressWarnings({"rawtypes"})
     public static List openThreads(final List list, final Object obj, final Method method, Integer threadCount, Long threadTimeout, final Object... args) throws Exception {
+        return openThreads(list, obj, method, threadCount, threadTimeout, null, args);
+    }
+
+    /**
+     * 分threadCount对集合list执行obj里面的method方法
+     *
+     * @param obj
+     * @param method
+     * @param list          处理集合
+     * @param threadCount   线程数目 ，如果list.size()%threadCount!=0 那么threadCount线程数目+1
+     * @param threadTimeout 线程处理时间超出时间
+     * @param executor      为 null 时使用共享线程池
+     * @return 每段的执行结果, 执行失败或超时为 false
+     * @throws Exception
+     */
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public static List openThreads(final List list, final Object obj, final Method method, Integer threadCount, Long threadTimeout,
+                                   Executor executor, final Object... args) throws Exception {
+        List<CompletableFuture<Object>> futureList = openThreadsAsync(list, obj, method, threadCount, executor, args);
+        if (null == futureList) {
+            return null;
+        }
+
+        List result = new ArrayList(futureList.size());
+        // 判断线程是否都执行完
+        for (CompletableFuture<Object> f : futureList) {
+            try {
+                Object o = f.get(threadTimeout, TimeUnit.MILLISECONDS);// 设置超时时间
+                result.add(o);
+            } catch (Exception e) {
+                log.error("", e);
+                result.add(false);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 分threadCount对集合list执行obj里面的method方法, 不等待执行结果 </br>
+     * 每段传给 method 的是 list 的 {@link List#subList(int, int)} 视图, 执行期间不要修改 list 的结构
+     *
+     * @param obj
+     * @param method
+     * @param list        处理集合
+     * @param threadCount 线程数目 ，如果list.size()%threadCount!=0 那么threadCount线程数目+1
+     * @param executor    为 null 时使用共享线程池, 线程池满时由调用线程执行
+     * @return 每段的执行结果, list 为空时返回 null
+     */
+    public static List<CompletableFuture<Object>> openThreadsAsync(final List<?> list, final Object obj, final Method method,
+                                                                  Integer threadCount, Executor executor, final Object... args) {
         int threadMaxCellCount = 0;// 每个线程处理对象的最大数目
         if (list == null || list.size() == 0) {
             return null;
@@ -276,70 +335,48 @@ public class ClassUtils {
             threadCount = threadCount + 1;// 多出一个线程处理余数
         }
 
-        // if(threadCount != 0){
-        // threadCount =
-        // list.size()%threadMaxCellCount!=0?threadCount+1:threadCount;
-        // }else{
-        // threadCount = 1;
-        // }
-        ExecutorService es = Executors.newFixedThreadPool(threadCount);
-        try {
-            List<Future> futureList = new ArrayList<Future>();
-            for (int i = 0; i < threadCount; i++) {
-                List tempList = null;
-                if (i + 1 == threadCount) {// 最后一次
-                    tempList = new Vector(list.subList(i * threadMaxCellCount, list.size()));
-                } else {
-                    tempList = new Vector(list.subList(i * threadMaxCellCount, i * threadMaxCellCount + threadMaxCellCount));
+        Executor es = null == executor ? SharedExecutorHolder.EXECUTOR : executor;
+        List<CompletableFuture<Object>> futureList = new ArrayList<>(threadCount);
+        for (int i = 0; i < threadCount; i++) {
+            int from = i * threadMaxCellCount;
+            // 最后一次处理剩余全部
+            int to = i + 1 == threadCount ? list.size() : from + threadMaxCellCount;
+            final List<?> callList = list.subList(from, to);
+            futureList.add(CompletableFuture.supplyAsync(() -> {
+                Object[] params = new Object[args == null ? 1 : args.length + 1];
+                params[0] = callList;
+                if (args != null) {
+                    System.arraycopy(args, 0, params, 1, args.length);
                 }
-                // Object []params = new Object[args==null?1:args.length+1];
-                // params[0] = tempList;
-                // int k=1;
-                // if(args!=null){
-                // for(Object obj :args){
-                // params[k]=obj;
-                // k++;
-                // }
-                // }
-                final List callList = tempList;
-                Callable runer = new Callable() {
-                    public Object call() throws Exception {
-                        Object[] params = new Object[args == null ? 1 : args.length + 1];
-                        params[0] = callList;
-                        int k = 1;
-                        if (args != null) {
-                            for (Object param : args) {
-                                params[k] = param;
-                                k++;
-                            }
-                        }
-                        return method.invoke(obj, params);
-                    }
-                };
-                Future f = es.submit(runer);
-                futureList.add(f);
-            }
-            List result = new ArrayList();
-            // 判断线程是否都执行完
-            int j = 0;
-            for (Future f : futureList) {
                 try {
-                    Object o = f.get(threadTimeout, TimeUnit.MILLISECONDS);// 设置超时时间
-                    result.add(o);
-                } catch (Exception e) {
-                    log.error("", e);
-                    result.add(false);
+                    return method.invoke(obj, params);
+                } catch (InvocationTargetException e) {
+                    throw new CompletionException(e.getCause());
+                } catch (IllegalAccessException e) {
+                    throw new CompletionException(e);
                 }
-                j++;
-                // System.out.println("线程完成："+j);
-            }
-            return result;
-        } catch (Exception e) {
-            throw e;
-        } finally {
-            es.shutdown();
+            }, es));
+        }
+        return futureList;
+    }
+
+    /**
+     * invokeMethods/openThreads 共享线程池, 首次使用时创建 </br>
+     * 线程数 cpu 核数 * 2, 队列满时由调用线程执行, 空闲线程超时回收
+     */
+    private static class SharedExecutorHolder {
+        private static final int QUEUE_CAPACITY = 1024;
+        private static final ExecutorService EXECUTOR = newExecutor();
+
+        private static ExecutorService newExecutor() {
+            int poolSize = Runtime.getRuntime().availableProcessors() * 2;
+            ThreadPoolExecutor executor = new ThreadPoolExecutor(poolSize, poolSize,
+                    60, TimeUnit.SECONDS,
+                    new LinkedBlockingQueue<>(QUEUE_CAPACITY), new PitThreadFactory("pit-class-utils"),
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            executor.allowCoreThreadTimeOut(true);
+            return executor;
         }
-        // System.out.println("执行完一次操作");
     }
 
     /**
@@ -356,7 +393,7 @@ public class ClassUtils {
             return null;
         }
         for (Object obj : set) {
-            String beanValue = BeanUtils.getProperty(obj, propertyName);
+            String beanValue = getPropertyAsString(obj, propertyName);
             if (StringUtils.equals(value, beanValue)) {
                 return obj;
             }
@@ -372,7 +409,7 @@ public class ClassUtils {
         for (Object obj : list) {
             StringBuilder key = new StringBuilder();
             for (String keyField : keyFields) {
-                key.append(BeanUtils.getProperty(obj, keyField));
+                key.append(getPropertyAsString(obj, keyField));
                 key.append("_");
             }
             if (StringUtils.isNotBlank(key.toString())) {
@@ -425,7 +462,7 @@ public class ClassUtils {
             return result;
         }
         for (T obj : list) {
-            Object objVal = BeanUtils.getProperty(obj, keyField);
+            Object objVal = getPropertyAsString(obj, keyField);
             List<T> objList = null;
             if (result.get(objVal) == null) {
                 objList = new ArrayList<T>();
@@ -444,23 +481,31 @@ public class ClassUtils {
      * @throws Exception
      * @author Giant
      */
-    @SuppressWarnings("rawtypes")
     public static void copyProperties(Object dest, Object orig) throws Exception {
-        Class oclz = orig.getClass();
-        Class dclz = dest.getClass();
-        Map<String, PropertyDescriptor> omap = getAllDescriptorMap(oclz);
-        Map<String, PropertyDescriptor> dmap = getAllDescriptorMap(dclz);
-        Set<String> dset = dmap.keySet();
-        for (String fieldName : dset) {
-            PropertyDescriptor ofield = omap.get(fieldName);
-            if (ofield != null) {
-                Object value = ofield.getReadMethod().invoke(orig, new Object[]{});
-                PropertyDescriptor dfield = dmap.get(fieldName);
-                if (value != null) {
-                    dfield.getWriteMethod().invoke(dest, value);
+        BeanMetadata.of(orig.getClass()).copyTo(dest, orig);
+    }
+
+    /**
+     * 与 {@link BeanUtils#getProperty(Object, String)} 结果一致, 简单属性名使用 {@link BeanMetadata} 缓存的访问器,
+     * 嵌套/索引/Map 属性仍使用 BeanUtils
+     *
+     * @param bean
+     * @param name
+     * @return
+     * @throws Exception
+     */
+    private static String getPropertyAsString(Object bean, String name) throws Exception {
+        if (!(bean instanceof Map) && !(bean instanceof DynaBean) && StringUtils.containsNone(name, '.', '[', '(')) {
+            BeanMetadata.PropertyAccessor accessor = BeanMetadata.of(bean.getClass()).getProperty(name);
+            if (null != accessor && accessor.isReadable()) {
+                Object value = accessor.get(bean);
+                if (null == value || value instanceof String) {
+                    return (String) value;
                 }
+                return ConvertUtils.convert(value);
             }
         }
+        return BeanUtils.getProperty(bean, name);
     }
 
     public static String getSplitStr(List beans, String propertyName, String separator) {
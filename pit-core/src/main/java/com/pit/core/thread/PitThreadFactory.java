@@ -1,5 +1,7 @@
 package com.pit.core.thread;
 
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -20,4 +22,67 @@ public class PitThreadFactory implements ThreadFactory {
         Thread thread = new Thread(r, this.threadName + '-' + this.nextId.getAndIncrement());
         return thread;
     }
-}
\ No newline at end of file
+
+    /**
+     * 包装 executor, 提交任务时捕获调用线程的 {@link PitThreadInfo}, 执行时安装到执行线程, 执行完恢复执行线程原有上下文
+     *
+     * @param executor
+     * @return
+     */
+    public static Executor propagating(Executor executor) {
+        if (executor instanceof PropagatingExecutor) {
+            return executor;
+        }
+        return new PropagatingExecutor(executor);
+    }
+
+    /**
+     * 捕获当前线程上下文并包装 runnable
+     *
+     * @param runnable
+     * @return
+     */
+    public static Runnable wrap(Runnable runnable) {
+        PitThreadInfo snapshot = PitThreadLocalHolder.snapshot();
+        return () -> {
+            PitThreadInfo previous = PitThreadLocalHolder.attach(snapshot);
+            try {
+                runnable.run();
+            } finally {
+                PitThreadLocalHolder.restore(previous);
+            }
+        };
+    }
+
+    /**
+     * 捕获当前线程上下文并包装 callable
+     *
+     * @param callable
+     * @param <V>
+     * @return
+     */
+    public static <V> Callable<V> wrap(Callable<V> callable) {
+        PitThreadInfo snapshot = PitThreadLocalHolder.snapshot();
+        return () -> {
+            PitThreadInfo previous = PitThreadLocalHolder.attach(snapshot);
+            try {
+                return callable.call();
+            } finally {
+                PitThreadLocalHolder.restore(previous);
+            }
+        };
+    }
+
+    private static class PropagatingExecutor implements Executor {
+        private final Executor delegate;
+
+        private PropagatingExecutor(Executor delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            delegate.execute(wrap(command));
+        }
+    }
+}
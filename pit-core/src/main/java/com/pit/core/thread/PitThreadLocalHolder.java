@@ -17,82 +17,148 @@ public class PitThreadLocalHolder {
         if (null == th) {
             th = new PitThreadInfo();
             contextHolder.set(th);
+        } else if (th instanceof ReadOnlyPitThreadInfo) {
+            th = th.clone();
+            contextHolder.set(th);
         }
+        init(th);
+    }
+
+    private static void init(PitThreadInfo th) {
         String runningId = UUIDUtils.getUUID();
         th.setRunningId(runningId);
         th.setStatus(0);
         th.setBegin(CachingSystemTimer2.getNow());
     }
 
+    /**
+     * 当前线程的 pitThreadInfo, 不存在时初始化, 只访问一次 ThreadLocal, 可能是只读快照, 只用于读取
+     *
+     * @return
+     */
+    private static PitThreadInfo current() {
+        PitThreadInfo th = contextHolder.get();
+        if (null == th) {
+            th = new PitThreadInfo();
+            init(th);
+            contextHolder.set(th);
+        }
+        return th;
+    }
+
+    /**
+     * 当前线程可修改的 pitThreadInfo, 当前安装的是只读快照时复制一份替换(写时复制)
+     *
+     * @return
+     */
+    private static PitThreadInfo writable() {
+        PitThreadInfo th = current();
+        if (th instanceof ReadOnlyPitThreadInfo) {
+            th = th.clone();
+            contextHolder.set(th);
+        }
+        return th;
+    }
+
+    // -----------------------------------------------
+    // 跨线程传递上下文
+    // 快照是只读的: 捕获时复制一次, 安装时按引用安装, 不再复制;
+    // 执行线程第一次修改上下文时才复制(写时复制), 提交线程与执行线程各自修改自己的 pitThreadInfo, 互不可见
+    // -----------------------------------------------
+
+    /**
+     * 获取当前线程上下文的只读快照, 不存在时先初始化, 执行线程与提交线程使用同一个 runningId </br>
+     * 之后提交线程对上下文的修改不影响快照; 当前安装的已是快照时直接返回, 不再复制
+     *
+     * @return
+     */
+    public static PitThreadInfo snapshot() {
+        return snapshot(current());
+    }
+
+    /**
+     * 获取 threadInfo 的只读快照
+     *
+     * @param threadInfo
+     * @return threadInfo 为 null 时返回 null
+     */
+    public static PitThreadInfo snapshot(PitThreadInfo threadInfo) {
+        if (null == threadInfo || threadInfo instanceof ReadOnlyPitThreadInfo) {
+            return threadInfo;
+        }
+        return new ReadOnlyPitThreadInfo(threadInfo);
+    }
+
+    /**
+     * 在当前线程安装快照, 同一个快照可在多个线程上并发安装
+     *
+     * @param snapshot {@link #snapshot()} 的结果, 为 null 时清除当前线程的上下文
+     * @return 当前线程原有的上下文, 执行结束后传给 {@link #restore(PitThreadInfo)}
+     */
+    public static PitThreadInfo attach(PitThreadInfo snapshot) {
+        PitThreadInfo previous = contextHolder.get();
+        restore(snapshot(snapshot));
+        return previous;
+    }
+
+    /**
+     * 恢复 {@link #attach(PitThreadInfo)} 之前的上下文
+     *
+     * @param previous
+     */
+    public static void restore(PitThreadInfo previous) {
+        if (null == previous) {
+            contextHolder.remove();
+        } else {
+            contextHolder.set(previous);
+        }
+    }
+
     /**
      * pitThreadInfo 状态
      *
      * @return
      */
     public static int getStatus() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        return contextHolder.get().getStatus();
+        return current().getStatus();
     }
 
     public static void setStatus(int status) {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        contextHolder.get().setStatus(status);
+        writable().setStatus(status);
     }
 
     public static long getBegin() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        return contextHolder.get().getBegin();
+        return current().getBegin();
     }
 
     public static String getRunningAccount() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        return contextHolder.get().getRunningId();
+        return current().getRunningId();
     }
 
     public static Integer getRunningFlag() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        return contextHolder.get().getRunningFlag();
+        return current().getRunningFlag();
     }
 
     public static void setRunningFlag(Integer RunningFlag) {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        contextHolder.get().setRunningFlag(RunningFlag);
+        writable().setRunningFlag(RunningFlag);
     }
 
     public static Integer getRequestLogFlag() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        if (null == contextHolder.get().getRequestLogFlag()) {
-            return 0;
-        }
-        return contextHolder.get().getRequestLogFlag();
+        Integer requestLogFlag = current().getRequestLogFlag();
+        return null == requestLogFlag ? 0 : requestLogFlag;
     }
 
     public static void setRequestLogFlag(Integer requestLogFlag) {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        contextHolder.get().setRequestLogFlag(requestLogFlag);
+        writable().setRequestLogFlag(requestLogFlag);
     }
 
+    /**
+     * 当前线程可修改的 pitThreadInfo
+     *
+     * @return
+     */
     public static PitThreadInfo getThreadHolder() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        return contextHolder.get();
+        return writable();
     }
 
     public static void setThreadHolder(PitThreadInfo threadHolder) {
@@ -100,32 +166,68 @@ public class PitThreadLocalHolder {
     }
 
     public static String getRemark() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        return contextHolder.get().getRemark();
+        return current().getRemark();
     }
 
     public static void setRemark(String remark) {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        contextHolder.get().setRemark(remark);
+        writable().setRemark(remark);
     }
 
     public static void resetRemark() {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        contextHolder.get().setRemark("");
+        writable().setRemark("");
     }
 
     public static void appendRemark(String remark) {
-        if (null == contextHolder.get()) {
-            initRunningAccount();
-        }
-        String oldRemark = contextHolder.get().getRemark();
-        contextHolder.get().setRemark(oldRemark + remark);
+        PitThreadInfo th = writable();
+        th.setRemark(th.getRemark() + remark);
     }
 
+    /**
+     * 只读快照, 修改时抛出 {@link UnsupportedOperationException}, 通过 {@link #clone()} 得到可修改的副本
+     */
+    private static final class ReadOnlyPitThreadInfo extends PitThreadInfo {
+        private ReadOnlyPitThreadInfo(PitThreadInfo threadInfo) {
+            super.copy(threadInfo);
+        }
+
+        @Override
+        public void setStatus(int status) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setBegin(long begin) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setRunningId(String runningId) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setRunningFlag(Integer runningFlag) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setRequestLogFlag(Integer requestLogFlag) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void setRemark(String remark) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void copy(PitThreadInfo threadHolder) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void append(PitThreadInfo threadHolder) {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
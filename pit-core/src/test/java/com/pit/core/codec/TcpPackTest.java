@@ -0,0 +1,245 @@
+package com.pit.core.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.CompositeByteBuf;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.netty.buffer.UnpooledByteBufAllocator;
+import io.netty.util.ResourceLeakDetector;
+import io.netty.util.ResourceLeakDetectorFactory;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Assert;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Field;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * buffer 所有权与引用计数 </br>
+ * PARANOID 级别下跟踪每个 buffer, 泄漏报告由 {@link RecordingLeakDetector} 记录, 每个用例结束后 gc 并断言没有泄漏
+ */
+public class TcpPackTest {
+    private static final List<String> LEAKS = new CopyOnWriteArrayList<>();
+
+    private static ResourceLeakDetector.Level level;
+
+    static {
+        // ByteBuf 的泄漏检测器在 AbstractByteBuf 类初始化时创建, 需在任何 ByteBuf 分配之前安装
+        ResourceLeakDetectorFactory.setResourceLeakDetectorFactory(new ResourceLeakDetectorFactory() {
+            @Override
+            public <T> ResourceLeakDetector<T> newResourceLeakDetector(Class<T> resource, int samplingInterval,
+                                                                      long maxActive) {
+                return new RecordingLeakDetector<>(resource, samplingInterval);
+            }
+        });
+    }
+
+    @BeforeClass
+    public static void setUpClass() throws Exception {
+        level = ResourceLeakDetector.getLevel();
+        ResourceLeakDetector.setLevel(ResourceLeakDetector.Level.PARANOID);
+
+        Field field = Class.forName("io.netty.buffer.AbstractByteBuf").getDeclaredField("leakDetector");
+        field.setAccessible(true);
+        Assert.assertTrue("ByteBuf allocated before the recording leak detector was installed",
+                field.get(null) instanceof RecordingLeakDetector);
+    }
+
+    @AfterClass
+    public static void tearDownClass() {
+        ResourceLeakDetector.setLevel(level);
+    }
+
+    @After
+    public void assertNoLeak() throws Exception {
+        Assert.assertEquals("leaks: " + LEAKS, 0, collectLeaks(5));
+    }
+
+    /**
+     * gc 后分配新 buffer 触发泄漏检测器处理已回收的引用, 已有泄漏报告时提前结束
+     *
+     * @param rounds 最多 gc 次数
+     * @return 报告的泄漏数, 并清空记录
+     */
+    private static int collectLeaks(int rounds) throws InterruptedException {
+        for (int i = 0; i < rounds && LEAKS.isEmpty(); i++) {
+            System.gc();
+            Thread.sleep(20);
+            PooledByteBufAllocator.DEFAULT.ioBuffer().release();
+            Unpooled.directBuffer().release();
+        }
+        int count = LEAKS.size();
+        LEAKS.clear();
+        return count;
+    }
+
+    /**
+     * 检测器本身有效: 未释放的 TcpPack 会被报告 </br>
+     * 使用非池化 allocator: 回收到 Recycler 中的池化切片仍引用原 buffer 对象, 泄漏的池化 buffer 可能迟迟不被 gc
+     */
+    @Test
+    public void testLeakReported() throws Exception {
+        leak(UnpooledByteBufAllocator.DEFAULT);
+        Assert.assertTrue(collectLeaks(50) > 0);
+    }
+
+    private static void leak(ByteBufAllocator allocator) {
+        new TcpPack(allocator).putInt(1, false);
+    }
+
+    /**
+     * 切片未释放时重复 release 不会释放切片持有的引用
+     */
+    @Test
+    public void testDoubleReleaseWithLiveSlice() {
+        TcpPack pack = TcpPack.pooled();
+        pack.putLong(9L, false);
+        ByteBuf buf = pack.data();
+        ByteBuf slice = pack.retainedSlice();
+
+        Assert.assertFalse(pack.release());
+        Assert.assertFalse(pack.release());
+        Assert.assertEquals(1, buf.refCnt());
+        Assert.assertEquals(9L, slice.getLong(0));
+
+        Assert.assertTrue(slice.release());
+        Assert.assertEquals(0, buf.refCnt());
+        Assert.assertFalse(pack.release());
+    }
+
+    /**
+     * composite 未释放时重复 release
+     */
+    @Test
+    public void testDoubleReleaseWithLiveComposite() {
+        TcpPack pack = TcpPack.pooled().putInt(5, false);
+        CompositeByteBuf composite = TcpPack.composite(PooledByteBufAllocator.DEFAULT, pack);
+
+        pack.release();
+        pack.release();
+        Assert.assertEquals(1, pack.data().refCnt());
+        Assert.assertEquals(5, composite.getInt(0));
+
+        Assert.assertTrue(composite.release());
+        Assert.assertEquals(0, pack.data().refCnt());
+    }
+
+    @Test
+    public void testOwnedBufferReleased() {
+        TcpPack pack = TcpPack.pooled();
+        pack.putInt(1, false).putString("abc", false);
+        ByteBuf buf = pack.data();
+        Assert.assertEquals(1, buf.refCnt());
+
+        Assert.assertTrue(pack.release());
+        Assert.assertEquals(0, buf.refCnt());
+        // 重复释放不抛异常
+        Assert.assertFalse(pack.release());
+    }
+
+    @Test
+    public void testCallerBufferNotReleased() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.ioBuffer();
+        try {
+            TcpPack pack = new TcpPack(buf);
+            pack.putLong(1L, true);
+            Assert.assertFalse(pack.release());
+            Assert.assertEquals(1, buf.refCnt());
+            Assert.assertEquals(8, buf.readableBytes());
+        } finally {
+            buf.release();
+        }
+        Assert.assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testRetainedSlice() {
+        TcpPack pack = TcpPack.pooled();
+        pack.putInt(7, false);
+        ByteBuf buf = pack.data();
+
+        ByteBuf slice = pack.retainedSlice();
+        Assert.assertEquals(2, buf.refCnt());
+        Assert.assertEquals(7, slice.getInt(0));
+
+        // 切片未释放时 TcpPack 释放不会回收内存
+        Assert.assertFalse(pack.release());
+        Assert.assertEquals(1, buf.refCnt());
+        Assert.assertEquals(7, slice.getInt(0));
+
+        Assert.assertTrue(slice.release());
+        Assert.assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testComposite() {
+        TcpPack first = TcpPack.pooled().putInt(1, false);
+        TcpPack second = TcpPack.pooled().putInt(2, false);
+
+        CompositeByteBuf composite = TcpPack.composite(PooledByteBufAllocator.DEFAULT, first, second);
+        Assert.assertEquals(2, first.data().refCnt());
+        Assert.assertEquals(2, second.data().refCnt());
+        Assert.assertEquals(8, composite.readableBytes());
+        Assert.assertEquals(1, composite.readInt());
+        Assert.assertEquals(2, composite.readInt());
+
+        Assert.assertTrue(composite.release());
+        Assert.assertEquals(1, first.data().refCnt());
+        Assert.assertEquals(1, second.data().refCnt());
+
+        Assert.assertTrue(first.release());
+        Assert.assertTrue(second.release());
+        Assert.assertEquals(0, first.data().refCnt());
+        Assert.assertEquals(0, second.data().refCnt());
+    }
+
+    @Test
+    public void testUnpackRetainedSlice() {
+        ByteBuf buf = PooledByteBufAllocator.DEFAULT.ioBuffer();
+        new TcpPack(buf).putInt(3, false).putInt(4, false);
+
+        TcpUnpack unpack = new TcpUnpack(buf);
+        ByteBuf slice = unpack.readRetainedSlice(4);
+        Assert.assertEquals(2, buf.refCnt());
+        Assert.assertEquals(4, unpack.getInt(false));
+
+        Assert.assertFalse(buf.release());
+        Assert.assertEquals(3, slice.readInt());
+        Assert.assertTrue(slice.release());
+        Assert.assertEquals(0, buf.refCnt());
+    }
+
+    @Test
+    public void testToByteArrayKeepsBuffer() {
+        TcpPack pack = new TcpPack(Unpooled.buffer());
+        pack.putShort((short) 1, false);
+        Assert.assertArrayEquals(new byte[]{0, 1}, pack.toByteArray());
+        Assert.assertEquals(2, pack.data().readableBytes());
+        Assert.assertTrue(pack.data().release());
+    }
+
+    private static final class RecordingLeakDetector<T> extends ResourceLeakDetector<T> {
+        private RecordingLeakDetector(Class<?> resourceType, int samplingInterval) {
+            super(resourceType, samplingInterval);
+        }
+
+        @Override
+        protected boolean needReport() {
+            return true;
+        }
+
+        @Override
+        protected void reportTracedLeak(String resourceType, String records) {
+            LEAKS.add(resourceType + records);
+        }
+
+        @Override
+        protected void reportUntracedLeak(String resourceType) {
+            LEAKS.add(resourceType);
+        }
+    }
+}
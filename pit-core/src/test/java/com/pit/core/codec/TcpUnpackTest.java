@@ -0,0 +1,66 @@
+package com.pit.core.codec;
+
+import com.pit.core.exception.TcpUnpackException;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TcpUnpackTest {
+
+    /**
+     * 不占字节的元素, 长度前缀大于剩余可读字节数也是合法的
+     */
+    @Test
+    public void testUnmarshalArrayOfEmptyElements() {
+        ByteBuf buf = Unpooled.buffer().writeInt(3);
+        try {
+            Empty[] array = new TcpUnpack(buf).unmarshalArray(Empty::new, Empty[]::new, false);
+            Assert.assertEquals(3, array.length);
+            Assert.assertNotNull(array[2]);
+        } finally {
+            buf.release();
+        }
+    }
+
+    @Test
+    public void testUnmarshalArrayWithMinEncodedSize() {
+        ByteBuf buf = Unpooled.buffer().writeInt(2).writeInt(7).writeInt(9);
+        try {
+            IntValue[] array = new TcpUnpack(buf).unmarshalArray(IntValue::new, IntValue[]::new, 4, false);
+            Assert.assertEquals(2, array.length);
+            Assert.assertEquals(7, array[0].value);
+            Assert.assertEquals(9, array[1].value);
+        } finally {
+            buf.release();
+        }
+    }
+
+    /**
+     * 长度前缀超过剩余字节数可容纳的元素数时, 不按该长度分配数组
+     */
+    @Test(expected = TcpUnpackException.class)
+    public void testUnmarshalArrayRejectsIllegalSize() {
+        ByteBuf buf = Unpooled.buffer().writeInt(Integer.MAX_VALUE).writeInt(7);
+        try {
+            new TcpUnpack(buf).unmarshalArray(IntValue::new, IntValue[]::new, 4, false);
+        } finally {
+            buf.release();
+        }
+    }
+
+    private static class Empty implements Unmarshallable {
+        @Override
+        public void unmarshal(TcpUnpack unpack) {
+        }
+    }
+
+    private static class IntValue implements Unmarshallable {
+        private int value;
+
+        @Override
+        public void unmarshal(TcpUnpack unpack) {
+            value = unpack.getInt(false);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package com.pit.core.compression;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class KryoPoolTest {
+
+    /**
+     * 读写调用方的 ByteBuffer 后, 其字节序不变
+     */
+    @Test
+    public void testByteBufferOrderKept() {
+        KryoPool pool = new KryoPool(KryoConfig.builder().build());
+        List<Integer> value = new ArrayList<>(Arrays.asList(1, 2, 3));
+        for (ByteOrder order : Arrays.asList(ByteOrder.BIG_ENDIAN, ByteOrder.LITTLE_ENDIAN)) {
+            for (ByteBuffer buffer : Arrays.asList(ByteBuffer.allocate(256), ByteBuffer.allocateDirect(256))) {
+                buffer.order(order);
+                int written = pool.writeObject(value, buffer);
+                Assert.assertTrue(written > 0);
+                Assert.assertEquals(order, buffer.order());
+
+                buffer.flip();
+                Assert.assertEquals(value, pool.readObject(buffer, ArrayList.class));
+                Assert.assertEquals(order, buffer.order());
+                Assert.assertEquals(written, buffer.position());
+            }
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package com.pit.core.executor;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public class SegmentExecutorTest {
+    private ExecutorService executor;
+
+    @Before
+    public void setUp() {
+        executor = Executors.newFixedThreadPool(8);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * 后面的分段先完成, 结果仍按分段顺序合并
+     */
+    @Test
+    public void testResultOrder() {
+        List<Integer> input = IntStream.range(0, 40).boxed().collect(Collectors.toList());
+        List<Integer> result = SegmentExecutor.executeWithList(input, 4,
+                (SegmentExecutor.ListSegmentExecuteHandler<Integer, Integer>) partition -> {
+            sleep(40 - partition.get(0));
+            return partition;
+        }, executor, 4);
+        Assert.assertEquals(input, result);
+
+        List<Integer> numbers = SegmentExecutor.executeWithNumber(40, 4, (start, limit) -> {
+            sleep(40 - start);
+            return IntStream.range(start, start + limit).boxed().collect(Collectors.toList());
+        }, executor, 4);
+        Assert.assertEquals(input, numbers);
+
+        Map<Integer, Integer> map = SegmentExecutor.executeWithList(input, 4,
+                (SegmentExecutor.MapSegmentExecuteHandler<Integer, Integer, Integer>) partition ->
+                        partition.stream().collect(Collectors.toMap(i -> i, i -> i * 2)), executor, 4);
+        Assert.assertEquals(40, map.size());
+        Assert.assertEquals(Integer.valueOf(78), map.get(39));
+    }
+
+    /**
+     * 同时执行的分段数不超过 parallelism
+     */
+    @Test
+    public void testParallelismBound() {
+        int parallelism = 3;
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        List<Integer> input = IntStream.range(0, 100).boxed().collect(Collectors.toList());
+        List<Integer> result = SegmentExecutor.executeWithList(input, 5,
+                (SegmentExecutor.ListSegmentExecuteHandler<Integer, Integer>) partition -> {
+            int current = running.incrementAndGet();
+            maxRunning.accumulateAndGet(current, Math::max);
+            sleep(10);
+            running.decrementAndGet();
+            return partition;
+        }, executor, parallelism);
+        Assert.assertEquals(input, result);
+        Assert.assertTrue("max running: " + maxRunning.get(), maxRunning.get() <= parallelism);
+        Assert.assertTrue("max running: " + maxRunning.get(), maxRunning.get() > 1);
+    }
+
+    /**
+     * 任一分段失败时抛出其异常, 取消执行中的分段, 不再提交剩余分段
+     */
+    @Test(timeout = 5000)
+    public void testCancelOnFirstFailure() throws Exception {
+        int parallelism = 3;
+        AtomicInteger started = new AtomicInteger();
+        CountDownLatch interrupted = new CountDownLatch(parallelism - 1);
+        IllegalStateException failure = new IllegalStateException("fail");
+        List<Integer> input = IntStream.range(0, 10).boxed().collect(Collectors.toList());
+        try {
+            SegmentExecutor.executeWithList(input, 1,
+                    (SegmentExecutor.ListSegmentExecuteHandler<Integer, Integer>) partition -> {
+                started.incrementAndGet();
+                if (0 == partition.get(0)) {
+                    sleep(50);
+                    throw failure;
+                }
+                try {
+                    new CountDownLatch(1).await();
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return Collections.<Integer>emptyList();
+            }, executor, parallelism);
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertSame(failure, e);
+        }
+
+        Assert.assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+        sleep(100);
+        Assert.assertEquals(parallelism, started.get());
+    }
+
+    @Test
+    public void testEmptyInput() {
+        Assert.assertTrue(SegmentExecutor.executeWithList(new ArrayList<Integer>(), 4,
+                (SegmentExecutor.ListSegmentExecuteHandler<Integer, Integer>) partition -> partition, executor, 4).isEmpty());
+        Assert.assertTrue(SegmentExecutor.executeWithNumber(0, 4, (start, limit) -> Collections.<Integer>emptyList(),
+                executor, 4).isEmpty());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
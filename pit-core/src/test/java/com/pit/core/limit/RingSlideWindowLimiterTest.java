@@ -0,0 +1,42 @@
+package com.pit.core.limit;
+
+import com.pit.core.time.CachingSystemTimer;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+public class RingSlideWindowLimiterTest {
+
+    /**
+     * period 不能被 bucketCount 整除时, 窗口不短于 period
+     */
+    @Test
+    public void testWindowNotShorterThanPeriod() {
+        ManualTimer timer = new ManualTimer();
+        RingSlideWindowLimiter limiter = new RingSlideWindowLimiter(1, 1000, TimeUnit.MILLISECONDS, 3, timer);
+
+        timer.now = 0;
+        Assert.assertTrue(limiter.grant());
+        timer.now = 999;
+        Assert.assertFalse(limiter.grant());
+        Assert.assertEquals(1, limiter.currentCount());
+
+        // 桶跨度 334ms, 窗口 1002ms
+        timer.now = 1002;
+        Assert.assertTrue(limiter.grant());
+    }
+
+    private static class ManualTimer extends CachingSystemTimer {
+        private volatile long now;
+
+        private ManualTimer() {
+            super(TimeUnit.DAYS.toMillis(1));
+        }
+
+        @Override
+        public long getTime() {
+            return now;
+        }
+    }
+}
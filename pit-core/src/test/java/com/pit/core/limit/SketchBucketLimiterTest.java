@@ -0,0 +1,108 @@
+package com.pit.core.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class SketchBucketLimiterTest {
+    private static final int KEYS = 20000;
+    private static final int REQUESTS = 200000;
+
+    /**
+     * 与精确计数的 BucketLimiter 对比: 估算值不小于真实值, 超出 e * N / width 的 key 比例不超过 e^-depth
+     */
+    @Test
+    public void testErrorBound() {
+        int depth = 4;
+        int width = 1 << 12;
+        SketchBucketLimiter sketch = new SketchBucketLimiter(depth, width, 1, TimeUnit.HOURS, null);
+        BucketLimiter bucket = BucketLimiter.create(KEYS, 1, TimeUnit.HOURS);
+
+        String[] keys = zipfKeys(REQUESTS, new Random(1));
+        for (String key : keys) {
+            sketch.tryAcquireIncrement(key, Integer.MAX_VALUE);
+            bucket.tryAcquireIncrement(key, Integer.MAX_VALUE);
+        }
+
+        double bound = Math.E * REQUESTS / width;
+        int exceeded = 0;
+        long totalError = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String key = "key" + i;
+            int exact = bucket.acquire(key);
+            int estimate = sketch.acquire(key);
+            Assert.assertTrue(key + " estimate " + estimate + " < exact " + exact, estimate >= exact);
+            totalError += estimate - exact;
+            if (estimate - exact > bound) {
+                exceeded++;
+            }
+        }
+        Assert.assertTrue("exceeded: " + exceeded, exceeded <= KEYS * Math.exp(-depth));
+        // 保守更新的平均误差远小于上界
+        Assert.assertTrue("average error: " + (double) totalError / KEYS, (double) totalError / KEYS < bound / 4);
+    }
+
+    /**
+     * 同一 key 并发计数: 无锁更新只可能少量少计, 不会多计
+     */
+    @Test
+    public void testConcurrentIncrement() throws Exception {
+        SketchBucketLimiter sketch = SketchBucketLimiter.create(1, TimeUnit.HOURS);
+        int threads = 8;
+        int perThread = 20000;
+        runConcurrently(threads, () -> {
+            for (int i = 0; i < perThread; i++) {
+                sketch.tryAcquireIncrement("hot", Integer.MAX_VALUE);
+            }
+        });
+        int exact = threads * perThread;
+        int estimate = sketch.acquire("hot");
+        Assert.assertTrue("estimate: " + estimate, estimate <= exact && estimate >= exact * 0.999);
+    }
+
+    /**
+     * 按 zipf(1) 分布生成请求的 key
+     */
+    private static String[] zipfKeys(int count, Random random) {
+        double[] cumulative = new double[KEYS];
+        double sum = 0;
+        for (int i = 0; i < KEYS; i++) {
+            sum += 1.0 / (i + 1);
+            cumulative[i] = sum;
+        }
+        String[] keys = new String[count];
+        for (int i = 0; i < count; i++) {
+            double r = random.nextDouble() * sum;
+            int index = Arrays.binarySearch(cumulative, r);
+            keys[i] = "key" + (index < 0 ? -index - 1 : index);
+        }
+        return keys;
+    }
+
+    private static void runConcurrently(int threads, Runnable task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    task.run();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        done.await();
+        executor.shutdown();
+    }
+}
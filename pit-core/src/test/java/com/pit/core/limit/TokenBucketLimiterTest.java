@@ -0,0 +1,60 @@
+package com.pit.core.limit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+public class TokenBucketLimiterTest {
+
+    /**
+     * 等待期间被 unpark、中断时仍等到令牌补足才返回, 并保留中断状态
+     */
+    @Test
+    public void testWaitUntilAvailableOnEarlyWake() throws Exception {
+        TokenBucketLimiter limiter = TokenBucketLimiter.create(1, 2);
+        Assert.assertTrue(limiter.tryAcquire());
+
+        CountDownLatch started = new CountDownLatch(1);
+        AtomicBoolean acquired = new AtomicBoolean();
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicLong expected = new AtomicLong();
+        AtomicLong elapsed = new AtomicLong();
+        Thread thread = new Thread(() -> {
+            expected.set(limiter.timeUntilAvailable(1, TimeUnit.NANOSECONDS));
+            started.countDown();
+            long start = System.nanoTime();
+            acquired.set(limiter.tryAcquire(1, 1, TimeUnit.SECONDS));
+            elapsed.set(System.nanoTime() - start);
+            interrupted.set(Thread.currentThread().isInterrupted());
+        });
+        thread.start();
+        started.await();
+
+        for (int i = 0; i < 5; i++) {
+            TimeUnit.MILLISECONDS.sleep(5);
+            LockSupport.unpark(thread);
+        }
+        thread.interrupt();
+        thread.join();
+
+        Assert.assertTrue("not acquired", acquired.get());
+        Assert.assertTrue("interrupt status lost", interrupted.get());
+        Assert.assertTrue("returned after " + elapsed.get() + "ns, expected " + expected.get() + "ns",
+                elapsed.get() >= expected.get() - TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    @Test
+    public void testTimeUntilAvailable() {
+        TokenBucketLimiter limiter = TokenBucketLimiter.create(2, 10);
+        Assert.assertEquals(0, limiter.timeUntilAvailable(2, TimeUnit.NANOSECONDS));
+        Assert.assertEquals(2, limiter.availablePermits());
+        Assert.assertTrue(limiter.tryAcquire(2));
+        Assert.assertFalse(limiter.tryAcquire());
+        Assert.assertTrue(limiter.timeUntilAvailable(1, TimeUnit.MILLISECONDS) > 0);
+    }
+}
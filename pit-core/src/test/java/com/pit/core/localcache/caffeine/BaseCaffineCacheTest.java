@@ -0,0 +1,185 @@
+package com.pit.core.localcache.caffeine;
+
+import com.pit.core.localcache.ICacheDataLoader;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BaseCaffineCacheTest {
+    private static final long EXPIRE_MILLIS = 50;
+    private static final long RUN_MILLIS = 500;
+
+    /**
+     * 持续访问的热点 key: 访问过期不会过期, 写入过期每个周期回源一次
+     */
+    @Test
+    public void testHotKeyHitRatio() throws Exception {
+        AtomicInteger accessLoads = new AtomicInteger();
+        TestCache accessCache = new TestCache(CaffineCacheConfig.builder()
+                .maxSize(100)
+                .expireAfterAccessDuration(EXPIRE_MILLIS)
+                .expireAfterAccessTimeUnit(TimeUnit.MILLISECONDS)
+                .build(), key -> {
+            accessLoads.incrementAndGet();
+            return key;
+        });
+        AtomicInteger writeLoads = new AtomicInteger();
+        TestCache writeCache = new TestCache(CaffineCacheConfig.builder()
+                .maxSize(100)
+                .expireAfterWriteDuration(EXPIRE_MILLIS)
+                .expireAfterWriteTimeUnit(TimeUnit.MILLISECONDS)
+                .build(), key -> {
+            writeLoads.incrementAndGet();
+            return key;
+        });
+
+        int reads = 0;
+        long deadline = System.currentTimeMillis() + RUN_MILLIS;
+        while (System.currentTimeMillis() < deadline) {
+            Assert.assertEquals("hot", accessCache.get("hot").get());
+            Assert.assertEquals("hot", writeCache.get("hot").get());
+            reads++;
+            Thread.sleep(2);
+        }
+
+        double accessHitRatio = 1 - (double) accessLoads.get() / reads;
+        double writeHitRatio = 1 - (double) writeLoads.get() / reads;
+        Assert.assertEquals(1, accessLoads.get());
+        Assert.assertTrue("write loads: " + writeLoads.get(), writeLoads.get() >= RUN_MILLIS / EXPIRE_MILLIS / 2);
+        Assert.assertTrue(accessHitRatio > writeHitRatio);
+    }
+
+    /**
+     * 回源线程池已满时拒绝, 不在调用线程回源
+     */
+    @Test(timeout = 5000)
+    public void testRejectWhenLoadPoolFull() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> loadThreads = new ArrayList<>();
+        TestCache cache = new TestCache(CaffineCacheConfig.builder()
+                .maxSize(100)
+                .loadPoolSize(1)
+                .loadQueueCapacity(1)
+                .build(), key -> {
+            synchronized (loadThreads) {
+                loadThreads.add(Thread.currentThread().getName());
+            }
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key;
+        });
+
+        // 1 个执行中, 队列中可能还有 caffeine 的维护任务, 最多几次回源后队列即满
+        List<CompletableFuture<String>> loading = new ArrayList<>();
+        boolean rejected = false;
+        for (int i = 0; i < 8 && !rejected; i++) {
+            try {
+                loading.add(cache.get("k" + i));
+            } catch (RejectedExecutionException e) {
+                rejected = true;
+            }
+        }
+        Assert.assertTrue(rejected);
+
+        release.countDown();
+        for (int i = 0; i < loading.size(); i++) {
+            Assert.assertEquals("k" + i, loading.get(i).get(1, TimeUnit.SECONDS));
+        }
+        for (String name : loadThreads) {
+            Assert.assertNotEquals(Thread.currentThread().getName(), name);
+        }
+    }
+
+    /**
+     * 未声明批量回源时, batchGet 中未命中的 key 并行回源, 串行回源时相互等待会超时
+     */
+    @Test(timeout = 5000)
+    public void testBatchGetLoadsInParallel() throws Exception {
+        CountDownLatch loading = new CountDownLatch(2);
+        TestCache cache = new TestCache(CaffineCacheConfig.builder()
+                .maxSize(100)
+                .loadPoolSize(2)
+                .build(), key -> {
+            loading.countDown();
+            try {
+                Assert.assertTrue(loading.await(2, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return key;
+        });
+
+        Map<String, String> values = cache.batchGet(Arrays.asList("a", "b")).get(3, TimeUnit.SECONDS);
+        Assert.assertEquals("a", values.get("a"));
+        Assert.assertEquals("b", values.get("b"));
+    }
+
+    /**
+     * 声明批量回源时, batchGet 中未命中的 key 合并为一次回源
+     */
+    @Test
+    public void testBatchGetBulkLoad() throws Exception {
+        AtomicInteger loads = new AtomicInteger();
+        List<Set<? extends String>> bulkLoads = new ArrayList<>();
+        TestCache cache = new TestCache(CaffineCacheConfig.builder()
+                .maxSize(100)
+                .build(), new ICacheDataLoader<String, String>() {
+            @Override
+            public String loadData(String key) {
+                loads.incrementAndGet();
+                return key;
+            }
+
+            @Override
+            public boolean supportsBulkLoad() {
+                return true;
+            }
+
+            @Override
+            public Map<String, String> loadAll(Set<? extends String> keys) {
+                synchronized (bulkLoads) {
+                    bulkLoads.add(new HashSet<>(keys));
+                }
+                Map<String, String> result = new HashMap<>();
+                for (String key : keys) {
+                    result.put(key, key);
+                }
+                return result;
+            }
+        });
+
+        Assert.assertEquals("a", cache.get("a").get());
+        Map<String, String> values = cache.batchGet(Arrays.asList("a", "b", "c")).get(1, TimeUnit.SECONDS);
+        Assert.assertEquals(3, values.size());
+        Assert.assertEquals("c", values.get("c"));
+        Assert.assertEquals(1, loads.get());
+        Assert.assertEquals(1, bulkLoads.size());
+        Assert.assertEquals(new HashSet<>(Arrays.asList("b", "c")), bulkLoads.get(0));
+    }
+
+    private static class TestCache extends BaseCaffineCache<String, String> {
+        private TestCache(CaffineCacheConfig config, ICacheDataLoader<String, String> loader) {
+            super(config, null, loader);
+        }
+
+        @Override
+        protected String getName() {
+            return "test";
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.pit.core.log;
+
+import com.pit.core.thread.PitThreadLocalHolder;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+public class AsyncLogServiceTest {
+
+    /**
+     * 关闭与写日志并发时不丢日志
+     */
+    @Test
+    public void testNoLossOnShutdown() throws Exception {
+        for (int round = 0; round < 20; round++) {
+            LongAdder written = new LongAdder();
+            AsyncLogService logService = new AsyncLogService(null, AsyncLogConfig.builder()
+                    .capacity(1024)
+                    .overflowPolicy(LogOverflowPolicy.BLOCK)
+                    .shutdownHookDisabled(true)
+                    .build()) {
+                @Override
+                protected void write(LogEvent event, String msg) {
+                    written.increment();
+                }
+            };
+
+            int threads = 4;
+            LongAdder sent = new LongAdder();
+            AtomicBoolean stop = new AtomicBoolean();
+            CountDownLatch done = new CountDownLatch(threads);
+            for (int i = 0; i < threads; i++) {
+                new Thread(() -> {
+                    PitThreadLocalHolder.setRequestLogFlag(3);
+                    while (!stop.get()) {
+                        logService.sendInfoLog("msg");
+                        sent.increment();
+                    }
+                    done.countDown();
+                }).start();
+            }
+
+            Thread.sleep(5);
+            logService.shutdown();
+            Thread.sleep(1);
+            stop.set(true);
+            done.await();
+
+            Assert.assertEquals(0, logService.getDroppedCount());
+            Assert.assertEquals(sent.sum(), written.sum());
+        }
+    }
+
+    @Test
+    public void testSampleWhenQueueFull() {
+        LongAdder written = new LongAdder();
+        AsyncLogService logService = new AsyncLogService(null, AsyncLogConfig.builder()
+                .capacity(16)
+                .overflowPolicy(LogOverflowPolicy.SAMPLE)
+                .sampleRate(1000)
+                .idleWaitMillis(1000)
+                .shutdownHookDisabled(true)
+                .build()) {
+            @Override
+            protected void write(LogEvent event, String msg) {
+                written.increment();
+            }
+        };
+        PitThreadLocalHolder.setRequestLogFlag(3);
+        for (int i = 0; i < 1000; i++) {
+            logService.sendInfoLog("msg");
+        }
+        logService.shutdown();
+        Assert.assertTrue(logService.getDroppedCount() > 0);
+        Assert.assertEquals(1000, written.sum() + logService.getDroppedCount());
+    }
+}
@@ -0,0 +1,71 @@
+package com.pit.core.log;
+
+import com.pit.core.thread.PitThreadLocalHolder;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class LogServiceTest {
+    private static final String TRUNCATED = "...(truncated)";
+
+    private final List<String> lines = new ArrayList<>();
+
+    private final LogService logService = new LogService() {
+        @Override
+        protected void write(LogEvent event, String msg) {
+            lines.add(msg);
+        }
+    };
+
+    @Before
+    public void setUp() {
+        PitThreadLocalHolder.setRequestLogFlag(3);
+    }
+
+    /**
+     * 第一个对象恰好写满时, 后续对象不再追加且标记截断
+     */
+    @Test
+    public void testExactFillThenMore() {
+        logService.sendInfoLogWithLimit(5, "abcde", "x");
+        Assert.assertEquals("abcde" + TRUNCATED, lines.get(0));
+    }
+
+    /**
+     * 恰好写满且没有后续对象时, 超出的只是分隔符, 不算截断
+     */
+    @Test
+    public void testExactFillOnly() {
+        logService.sendInfoLogWithLimit(5, "abcde");
+        Assert.assertEquals("abcde", lines.get(0));
+    }
+
+    @Test
+    public void testExactFillThenJson() {
+        logService.sendInfoLogWithLimit(5, "abcde", Collections.singletonMap("k", "v"));
+        Assert.assertEquals("abcde" + TRUNCATED, lines.get(0));
+    }
+
+    @Test
+    public void testJsonExactFill() {
+        // {"k":"v"} 长度 9
+        logService.sendInfoLogWithLimit(9, Collections.singletonMap("k", "v"), "x");
+        Assert.assertEquals("{\"k\":\"v\"}" + TRUNCATED, lines.get(0));
+    }
+
+    @Test
+    public void testTruncated() {
+        logService.sendInfoLogWithLimit(4, "ab", "cdef");
+        Assert.assertEquals("ab|c" + TRUNCATED, lines.get(0));
+    }
+
+    @Test
+    public void testNotLimited() {
+        logService.sendInfoLogWithLimit(0, "ab", "cd");
+        Assert.assertEquals("ab|cd|", lines.get(0));
+    }
+}
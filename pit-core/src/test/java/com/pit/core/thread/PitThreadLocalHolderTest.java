@@ -0,0 +1,104 @@
+package com.pit.core.thread;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class PitThreadLocalHolderTest {
+
+    @After
+    public void tearDown() {
+        PitThreadLocalHolder.restore(null);
+    }
+
+    /**
+     * 执行线程与提交线程各自修改上下文, 互不可见, 快照不变
+     */
+    @Test
+    public void testSnapshotIsolation() throws Exception {
+        PitThreadLocalHolder.initRunningAccount();
+        PitThreadLocalHolder.setRemark("a");
+        String runningId = PitThreadLocalHolder.getRunningAccount();
+        PitThreadInfo snapshot = PitThreadLocalHolder.snapshot();
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<String> first = executor.submit(PitThreadFactory.wrap(() -> {
+                PitThreadLocalHolder.appendRemark("1");
+                return PitThreadLocalHolder.getRunningAccount() + PitThreadLocalHolder.getRemark();
+            }));
+            Future<String> second = executor.submit(PitThreadFactory.wrap(() -> {
+                PitThreadLocalHolder.appendRemark("2");
+                return PitThreadLocalHolder.getRunningAccount() + PitThreadLocalHolder.getRemark();
+            }));
+            PitThreadLocalHolder.appendRemark("m");
+
+            Assert.assertEquals(runningId + "a1", first.get());
+            Assert.assertEquals(runningId + "a2", second.get());
+            Assert.assertEquals("am", PitThreadLocalHolder.getRemark());
+            Assert.assertEquals("a", snapshot.getRemark());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * 快照按引用安装, 执行线程只读时不复制, 第一次修改时复制, 快照不变
+     */
+    @Test
+    public void testAttachByReferenceCopyOnWrite() {
+        PitThreadLocalHolder.setRemark("a");
+        PitThreadInfo snapshot = PitThreadLocalHolder.snapshot();
+        PitThreadInfo original = PitThreadLocalHolder.getThreadHolder();
+
+        PitThreadInfo previous = PitThreadLocalHolder.attach(snapshot);
+        Assert.assertSame(original, previous);
+        Assert.assertEquals("a", PitThreadLocalHolder.getRemark());
+        // 再次传递时复用同一个快照
+        Assert.assertSame(snapshot, PitThreadLocalHolder.snapshot());
+
+        PitThreadLocalHolder.appendRemark("x");
+        Assert.assertEquals("ax", PitThreadLocalHolder.getRemark());
+        Assert.assertEquals("a", snapshot.getRemark());
+        Assert.assertNotSame(snapshot, PitThreadLocalHolder.snapshot());
+        PitThreadLocalHolder.restore(previous);
+
+        PitThreadLocalHolder.attach(snapshot);
+        Assert.assertEquals("a", PitThreadLocalHolder.getRemark());
+        PitThreadLocalHolder.restore(previous);
+        Assert.assertSame(original, PitThreadLocalHolder.getThreadHolder());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testSnapshotReadOnly() {
+        PitThreadLocalHolder.snapshot().setRemark("a");
+    }
+
+    /**
+     * 提交线程没有上下文时先初始化, 执行线程使用同一个 runningId
+     */
+    @Test
+    public void testSnapshotInitializesContext() throws Exception {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<String> runningId = executor.submit(PitThreadFactory.wrap(PitThreadLocalHolder::getRunningAccount));
+            Assert.assertNotNull(PitThreadLocalHolder.getRunningAccount());
+            Assert.assertEquals(PitThreadLocalHolder.getRunningAccount(), runningId.get());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testAttachNullSnapshot() {
+        PitThreadLocalHolder.setRemark("a");
+        PitThreadInfo previous = PitThreadLocalHolder.attach(null);
+        Assert.assertNotEquals("a", PitThreadLocalHolder.getRemark());
+        PitThreadLocalHolder.restore(previous);
+        Assert.assertEquals("a", PitThreadLocalHolder.getRemark());
+    }
+}
@@ -0,0 +1,406 @@
+package com.pit.jedis;
+
+import com.pit.core.thread.PitThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * 异步 redis client, 调用线程不阻塞、不占用连接 </br>
+ * 命令按 key 哈希分配到固定数量的通道, 每个通道一个线程, 将排队中的命令合并为一次 pipeline 批量发送(自动 pipeline),
+ * 同一个 key 的命令在同一通道内按提交顺序执行。
+ * 每批命令从 {@link JedisPoolContainer} 借出一个连接, 耗时超过阈值或失败时与 {@link RedisClient} 一样调用 executeError
+ * <p>
+ * 通过 {@link #AsyncRedisClient(RedisClient)} 创建时, 写命令会使该 {@link RedisClient} 的近端缓存失效,
+ * 失效通知与写命令在同一批 pipeline 中发送; 通过 {@link #execute(String, Function)} 执行的写命令需自行调用
+ * {@link RedisClient#invalidateNearCache(java.util.Collection)}
+ * <p>
+ * 注意：future 在通道线程中完成, 耗时的后续处理请使用 thenXxxAsync 指定线程池
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Slf4j
+public class AsyncRedisClient implements AutoCloseable {
+    private static final long SLOW_THRESHOLD_MILLIS = 100L;
+    private static final int DEFAULT_MAX_BATCH_SIZE = 512;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+
+    private final JedisPoolContainer jedisPoolContainer;
+    /**
+     * 需要失效的近端缓存, 为 null 时不失效
+     */
+    private final RedisNearCache nearCache;
+    private final Lane[] lanes;
+    private final int maxBatchSize;
+    private volatile boolean running = true;
+
+    /**
+     * 通道数为 cpu 核数与 4 的较小值
+     *
+     * @param jedisPoolContainer
+     */
+    public AsyncRedisClient(JedisPoolContainer jedisPoolContainer) {
+        this(jedisPoolContainer, Math.min(4, Runtime.getRuntime().availableProcessors()),
+                DEFAULT_MAX_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * @param jedisPoolContainer
+     * @param laneCount          通道数, 即同时占用的最大连接数
+     * @param maxBatchSize       每次 pipeline 最多合并的命令数
+     * @param queueCapacity      每个通道排队的最大命令数, 超出时 future 以 {@link RejectedExecutionException} 失败
+     */
+    public AsyncRedisClient(JedisPoolContainer jedisPoolContainer, int laneCount, int maxBatchSize, int queueCapacity) {
+        this(jedisPoolContainer, null, laneCount, maxBatchSize, queueCapacity);
+    }
+
+    /**
+     * 与 redisClient 共用连接池, 写命令使其近端缓存失效, 通道数为 cpu 核数与 4 的较小值
+     *
+     * @param redisClient
+     */
+    public AsyncRedisClient(RedisClient redisClient) {
+        this(redisClient, Math.min(4, Runtime.getRuntime().availableProcessors()),
+                DEFAULT_MAX_BATCH_SIZE, DEFAULT_QUEUE_CAPACITY);
+    }
+
+    /**
+     * 与 redisClient 共用连接池, 写命令使其近端缓存失效
+     *
+     * @param redisClient
+     * @param laneCount
+     * @param maxBatchSize
+     * @param queueCapacity
+     */
+    public AsyncRedisClient(RedisClient redisClient, int laneCount, int maxBatchSize, int queueCapacity) {
+        this(redisClient.getJedisPoolContainer(), redisClient.getNearCache(), laneCount, maxBatchSize, queueCapacity);
+    }
+
+    private AsyncRedisClient(JedisPoolContainer jedisPoolContainer, RedisNearCache nearCache,
+                             int laneCount, int maxBatchSize, int queueCapacity) {
+        if (laneCount <= 0 || maxBatchSize <= 0 || queueCapacity <= 0) {
+            throw new IllegalArgumentException("Illegal laneCount: " + laneCount + ", maxBatchSize: " + maxBatchSize
+                    + ", queueCapacity: " + queueCapacity);
+        }
+
+        this.jedisPoolContainer = jedisPoolContainer;
+        this.nearCache = nearCache;
+        this.maxBatchSize = maxBatchSize;
+        this.lanes = new Lane[laneCount];
+        PitThreadFactory threadFactory = new PitThreadFactory("pit-async-redis");
+        for (int i = 0; i < laneCount; i++) {
+            lanes[i] = new Lane(queueCapacity);
+            Thread thread = threadFactory.newThread(lanes[i]);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * 异步执行单条命令
+     *
+     * @param key     用于选择通道, 为 null 时随机选择
+     * @param command 在 pipeline 上添加一条命令并返回其 Response
+     * @param <T>
+     * @return
+     */
+    public <T> CompletableFuture<T> execute(String key, Function<Pipeline, Response<T>> command) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!running) {
+            future.completeExceptionally(new IllegalStateException("AsyncRedisClient is closed"));
+            return future;
+        }
+
+        int index = null == key ? ThreadLocalRandom.current().nextInt(lanes.length) : (key.hashCode() & 0x7FFFFFFF) % lanes.length;
+        Lane lane = lanes[index];
+        Command<T> cmd = new Command<>(command, future);
+        if (!lane.queue.offer(cmd)) {
+            future.completeExceptionally(new RejectedExecutionException("redis async queue is full"));
+        } else if (!running && lane.queue.remove(cmd)) {
+            // 关闭过程中提交, 通道线程可能已退出
+            future.completeExceptionally(new IllegalStateException("AsyncRedisClient is closed"));
+        }
+        return future;
+    }
+
+    /**
+     * 执行写命令, 匹配近端缓存前缀时在同一批 pipeline 中发布失效通知, 完成后失效本地缓存
+     */
+    private <T> CompletableFuture<T> write(String key, Function<Pipeline, Response<T>> command) {
+        if (null == nearCache || !nearCache.matches(key)) {
+            return execute(key, command);
+        }
+        String channel = nearCache.getChannel();
+        return execute(key, pipeline -> {
+            Response<T> response = command.apply(pipeline);
+            pipeline.publish(channel, key);
+            return response;
+        }).whenComplete((result, e) -> nearCache.remove(key));
+    }
+
+    // ---------- common begin
+
+    public CompletableFuture<Long> del(String key) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.del(key));
+    }
+
+    public CompletableFuture<Boolean> exist(String key) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.exists(key));
+    }
+
+    public CompletableFuture<Long> expire(String key, int seconds) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.expire(key, seconds));
+    }
+    // ---------- common end
+
+    // ---------- string begin
+
+    public CompletableFuture<String> get(String key) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.get(key));
+    }
+
+    public CompletableFuture<String> set(String key, String value) {
+        if (StringUtils.isAnyBlank(key, value)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.set(key, value));
+    }
+
+    /**
+     * 设置值及过期时间, 毫秒
+     */
+    public CompletableFuture<String> set(String key, String value, long milliseconds) {
+        if (StringUtils.isAnyBlank(key, value) || milliseconds <= 0) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.psetex(key, milliseconds, value));
+    }
+
+    public CompletableFuture<Long> incr(String key) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.incr(key));
+    }
+
+    public CompletableFuture<Long> incr(String key, long increment) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.incrBy(key, increment));
+    }
+    // ---------- string end
+
+    // ---------- hash begin
+
+    public CompletableFuture<String> hget(String key, String field) {
+        if (StringUtils.isAnyBlank(key, field)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.hget(key, field));
+    }
+
+    public CompletableFuture<Map<String, String>> hgetAll(String key) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.hgetAll(key));
+    }
+
+    public CompletableFuture<List<String>> hmget(String key, String... fields) {
+        if (StringUtils.isBlank(key) || null == fields || 0 == fields.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.hmget(key, fields));
+    }
+
+    public CompletableFuture<Long> hset(String key, String field, String value) {
+        if (StringUtils.isAnyBlank(key, field, value)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.hset(key, field, value));
+    }
+
+    public CompletableFuture<Long> hincrby(String key, String field, long increment) {
+        if (StringUtils.isAnyBlank(key, field)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.hincrBy(key, field, increment));
+    }
+
+    public CompletableFuture<Long> hdel(String key, String... fields) {
+        if (StringUtils.isBlank(key) || null == fields || 0 == fields.length) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return write(key, pipeline -> pipeline.hdel(key, fields));
+    }
+    // ---------- hash end
+
+    // ---------- sorted set begin
+
+    public CompletableFuture<Long> zadd(String key, double score, String member) {
+        if (StringUtils.isAnyBlank(key, member)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.zadd(key, score, member));
+    }
+
+    public CompletableFuture<Double> zscore(String key, String member) {
+        if (StringUtils.isAnyBlank(key, member)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.zscore(key, member));
+    }
+
+    public CompletableFuture<Set<String>> zrange(String key, long start, long end) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.zrange(key, start, end));
+    }
+
+    public CompletableFuture<Set<String>> zrevrange(String key, long start, long end) {
+        if (StringUtils.isBlank(key)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return execute(key, pipeline -> pipeline.zrevrange(key, start, end));
+    }
+    // ---------- sorted set end
+
+    /**
+     * @return 所有通道中排队的命令数
+     */
+    public int getPendingCount() {
+        int count = 0;
+        for (Lane lane : lanes) {
+            count += lane.queue.size();
+        }
+        return count;
+    }
+
+    /**
+     * 停止接收命令, 已排队的命令执行完后通道线程退出
+     */
+    @Override
+    public void close() {
+        running = false;
+    }
+
+    private class Lane implements Runnable {
+        private final BlockingQueue<Command<?>> queue;
+
+        private Lane(int queueCapacity) {
+            this.queue = new LinkedBlockingQueue<>(queueCapacity);
+        }
+
+        @Override
+        public void run() {
+            List<Command<?>> batch = new ArrayList<>(maxBatchSize);
+            while (running || !queue.isEmpty()) {
+                try {
+                    Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (null == first) {
+                        continue;
+                    }
+                    batch.add(first);
+                    // 合并排队中的命令
+                    queue.drainTo(batch, maxBatchSize - 1);
+                    flush(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (Throwable e) {
+                    log.error("redis async lane error", e);
+                } finally {
+                    batch.clear();
+                }
+            }
+        }
+
+        private void flush(List<Command<?>> batch) {
+            Jedis jedis = null;
+            List<Response<?>> responses = new ArrayList<>(batch.size());
+            long start = 0;
+            try {
+                jedis = jedisPoolContainer.getClient();
+                start = System.nanoTime();
+
+                Pipeline pipeline = jedis.pipelined();
+                for (Command<?> command : batch) {
+                    responses.add(command.command.apply(pipeline));
+                }
+                pipeline.sync();
+
+                // 计算耗时是否大于阈值，如果默认100ms
+                long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+                if (cost > SLOW_THRESHOLD_MILLIS) {
+                    jedisPoolContainer.executeError(jedis);
+                }
+            } catch (Exception e) {
+                if (null != jedis) {
+                    jedisPoolContainer.executeError(jedis);
+                }
+                for (Command<?> command : batch) {
+                    command.future.completeExceptionally(e);
+                }
+                return;
+            } finally {
+                if (null != jedis) {
+                    jedisPoolContainer.executeComplete(jedis, System.nanoTime() - start);
+                    jedis.close();
+                }
+            }
+
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).complete(responses.get(i));
+            }
+        }
+    }
+
+    private static class Command<T> {
+        private final Function<Pipeline, Response<T>> command;
+        private final CompletableFuture<T> future;
+
+        private Command(Function<Pipeline, Response<T>> command, CompletableFuture<T> future) {
+            this.command = command;
+            this.future = future;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(Response<?> response) {
+            try {
+                future.complete(((Response<T>) response).get());
+            } catch (Exception e) {
+                // 单条命令的错误, 如类型不匹配
+                future.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -22,4 +22,22 @@ public interface JedisPoolContainer {
      * @param jedis Jedis实例
      */
     void executeError(Jedis jedis);
+
+    /**
+     * 获取一个长时间占用的Jedis实例(如订阅), 不计入实例的并发数, 归还前同样调用 {@link #executeComplete(Jedis, long)}
+     *
+     * @return
+     */
+    default Jedis getSubscribeClient() {
+        return getClient();
+    }
+
+    /**
+     * 一次调用结束(成功或失败)后、归还连接前触发, 用于统计实例的耗时及并发数, {@link #getClient()} 借出的连接归还前都应调用
+     *
+     * @param jedis     Jedis实例
+     * @param costNanos 调用耗时, 纳秒, 小于 0 时不计入耗时(如长时间占用连接的订阅)
+     */
+    default void executeComplete(Jedis jedis, long costNanos) {
+    }
 }
@@ -0,0 +1,46 @@
+package com.pit.jedis;
+
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * redis 近端缓存(本地缓存)配置
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Data
+@Builder
+public class NearCacheConfig {
+    /**
+     * 开启本地缓存的 key 前缀, 为空时不缓存任何 key
+     */
+    private List<String> keyPrefixes;
+    /**
+     * string 与 hash 缓存各自的最大 key 数, 默认 10000
+     */
+    private long maxSize;
+    /**
+     * hash 每个 key 最多缓存的字段数, 默认 1024
+     */
+    private int maxFieldsPerKey;
+    /**
+     * 写入后过期时间, 毫秒, 默认 60000 </br>
+     * 也是未收到失效通知(如 key 在 redis 中过期、其他未开启本地缓存的客户端修改)时数据的最长不一致时间
+     */
+    private long expireAfterWriteMillis;
+    /**
+     * 失效通知的 pub/sub channel, 默认 {@link RedisNearCache#DEFAULT_CHANNEL}
+     */
+    private String channel;
+    /**
+     * 回源线程数, 默认 cpu 核数
+     */
+    private int loadPoolSize;
+    /**
+     * 是否显示缓存指标
+     */
+    private boolean displayCacheStats;
+}
@@ -2,17 +2,30 @@ package com.pit.jedis;
 
 import com.pit.core.executor.RetryExecutor;
 import com.pit.core.math.NumberUtils2;
-import com.pit.core.time.CachingSystemTimer2;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.collections4.CollectionUtils;
 import org.apache.commons.collections4.MapUtils;
 import org.apache.commons.lang3.ArrayUtils;
 import org.apache.commons.lang3.StringUtils;
 import redis.clients.jedis.BinaryClient;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
 
 /**
  * redis client
@@ -23,10 +36,34 @@ import java.util.Set;
  */
 public class RedisClient {
     private static final int RETRY_TIME = 3;
+    /**
+     * 批量命令每同步一次包含的 key 数量
+     */
+    private static final int PIPELINE_SYNC_SIZE = 1000;
     private JedisPoolContainer jedisPoolContainer;
+    /**
+     * lua 脚本 -> sha1
+     */
+    private final Map<String, String> scriptShas = new ConcurrentHashMap<>();
+    /**
+     * 近端缓存, 未开启时为 null
+     */
+    private final RedisNearCache nearCache;
 
     public RedisClient(JedisPoolContainer jedisPoolContainer) {
+        this(jedisPoolContainer, null);
+    }
+
+    /**
+     * @param jedisPoolContainer
+     * @param nearCacheConfig    近端缓存配置, 开启后匹配前缀的 key 的 get/hget 优先读本地缓存,
+     *                           本客户端的写命令会使其失效并通过 pub/sub 通知其他节点; 为 null 时不开启
+     */
+    public RedisClient(JedisPoolContainer jedisPoolContainer, NearCacheConfig nearCacheConfig) {
         this.jedisPoolContainer = jedisPoolContainer;
+        this.nearCache = null == nearCacheConfig ? null : new RedisNearCache(jedisPoolContainer, nearCacheConfig,
+                key -> exec((jedis) -> jedis.get(key), RETRY_TIME),
+                (key, field) -> exec((jedis) -> jedis.hget(key, field)));
     }
 
     private <T> T exec(RetryExecutor<T, Jedis> executor) {
@@ -36,14 +73,15 @@ public class RedisClient {
     private <T> T exec(RetryExecutor<T, Jedis> executor, int retry) {
         for (int i = 0; i <= retry; i++) {
             Jedis jedis = null;
+            long start = 0;
             try {
                 jedis = jedisPoolContainer.getClient();
-                long start = CachingSystemTimer2.getNow();
+                start = System.nanoTime();
 
                 T t = executor.exec(jedis);
 
                 // 计算耗时是否大于阈值，如果默认100ms
-                long cost = CachingSystemTimer2.getNow() - start;
+                long cost = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
                 if (cost > 100L) {
                     if (null != jedis) {
                         jedisPoolContainer.executeError(jedis);
@@ -59,6 +97,7 @@ public class RedisClient {
                 }
             } finally {
                 if (null != jedis) {
+                    jedisPoolContainer.executeComplete(jedis, System.nanoTime() - start);
                     jedis.close();
                 }
             }
@@ -66,6 +105,79 @@ public class RedisClient {
         return null;
     }
 
+    private <T> T write(String key, RetryExecutor<T, Jedis> executor) {
+        return write(key, executor, 1);
+    }
+
+    /**
+     * 执行写命令, 结束后使近端缓存中的 key 失效
+     */
+    private <T> T write(String key, RetryExecutor<T, Jedis> executor, int retry) {
+        if (null == nearCache) {
+            return exec(executor, retry);
+        }
+        try {
+            return exec(executor, retry);
+        } finally {
+            // 失败时命令也可能已执行
+            invalidateNearCache(Collections.singletonList(key));
+        }
+    }
+
+    private <T> T write(Collection<String> keys, RetryExecutor<T, Jedis> executor) {
+        if (null == nearCache) {
+            return exec(executor);
+        }
+        try {
+            return exec(executor);
+        } finally {
+            invalidateNearCache(keys);
+        }
+    }
+
+    /**
+     * 使近端缓存中的 key 失效并通知其他节点, 未开启近端缓存时不做任何事 </br>
+     * 本客户端的写命令会自动调用; {@link #pipelined(Function)} 等无法得知写入了哪些 key 的命令需在执行后手动调用
+     *
+     * @param keys
+     */
+    public void invalidateNearCache(Collection<String> keys) {
+        if (null != nearCache && CollectionUtils.isNotEmpty(keys)) {
+            nearCache.invalidate(keys);
+        }
+    }
+
+    /**
+     * 取 key-value 交替数组中的 key
+     */
+    private static List<String> evenElements(String[] keysvalues) {
+        List<String> keys = new ArrayList<>(keysvalues.length / 2 + 1);
+        for (int i = 0; i < keysvalues.length; i += 2) {
+            keys.add(keysvalues[i]);
+        }
+        return keys;
+    }
+
+    JedisPoolContainer getJedisPoolContainer() {
+        return jedisPoolContainer;
+    }
+
+    /**
+     * @return 近端缓存, 未开启时为 null
+     */
+    RedisNearCache getNearCache() {
+        return nearCache;
+    }
+
+    /**
+     * 关闭近端缓存的失效订阅, 之后的读请求直接访问 redis
+     */
+    public void closeNearCache() {
+        if (null != nearCache) {
+            nearCache.close();
+        }
+    }
+
     // ---------- common begin
 
     /**
@@ -77,7 +189,7 @@ public class RedisClient {
         if (StringUtils.isBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.del(key), RETRY_TIME);
+        return write(key, (jedis) -> jedis.del(key), RETRY_TIME);
     }
 
     /**
@@ -157,6 +269,9 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
+        if (null != nearCache) {
+            return nearCache.get(key);
+        }
         return exec((jedis) -> jedis.get(key), RETRY_TIME);
     }
 
@@ -191,7 +306,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key, value)) {
             return null;
         }
-        return exec((jedis) -> jedis.getSet(key, value), RETRY_TIME);
+        return write(key, (jedis) -> jedis.getSet(key, value), RETRY_TIME);
     }
 
     /**
@@ -243,7 +358,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.set(key, value, nxxx, expx, time));
+        return write(key, (jedis) -> jedis.set(key, value, nxxx, expx, time));
     }
 
     /**
@@ -257,7 +372,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.psetex(key, milliseconds, value), RETRY_TIME);
+        return write(key, (jedis) -> jedis.psetex(key, milliseconds, value), RETRY_TIME);
     }
 
     /**
@@ -283,7 +398,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key, value) || NumberUtils2.isAnyNegativeStrict(offset)) {
             return null;
         }
-        return exec((jedis) -> jedis.setbit(key, offset, value), RETRY_TIME);
+        return write(key, (jedis) -> jedis.setbit(key, offset, value), RETRY_TIME);
     }
 
     /**
@@ -297,7 +412,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key, value) || NumberUtils2.isAnyNegativeStrict(offset)) {
             return null;
         }
-        return exec((jedis) -> jedis.setrange(key, offset, value), RETRY_TIME);
+        return write(key, (jedis) -> jedis.setrange(key, offset, value), RETRY_TIME);
     }
 
     /**
@@ -309,7 +424,7 @@ public class RedisClient {
         if (ArrayUtils.isEmpty(keysvalues)) {
             return null;
         }
-        return exec((jedis) -> jedis.mset(keysvalues));
+        return write(evenElements(keysvalues), (jedis) -> jedis.mset(keysvalues));
     }
 
     /**
@@ -321,7 +436,7 @@ public class RedisClient {
         if (ArrayUtils.isEmpty(keysvalues)) {
             return null;
         }
-        return exec((jedis) -> jedis.msetnx(keysvalues));
+        return write(evenElements(keysvalues), (jedis) -> jedis.msetnx(keysvalues));
     }
 
     public List<Object> msetAndExpire(long milliseconds, Map<String, String> keyValues) {
@@ -329,7 +444,7 @@ public class RedisClient {
             return null;
         }
 
-        return exec(jedis -> {
+        return write(keyValues.keySet(), jedis -> {
             Pipeline pipeline = jedis.pipelined();
 
             for (Map.Entry<String, String> entry : keyValues.entrySet()) {
@@ -361,7 +476,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.incr(key));
+        return write(key, (jedis) -> jedis.incr(key));
     }
 
     /**
@@ -374,7 +489,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.incrBy(key, increment));
+        return write(key, (jedis) -> jedis.incrBy(key, increment));
     }
 
     /**
@@ -387,7 +502,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.incrByFloat(key, increment));
+        return write(key, (jedis) -> jedis.incrByFloat(key, increment));
     }
 
     /**
@@ -399,7 +514,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.decr(key));
+        return write(key, (jedis) -> jedis.decr(key));
     }
 
     /**
@@ -412,7 +527,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key)) {
             return null;
         }
-        return exec((jedis) -> jedis.decrBy(key, increment));
+        return write(key, (jedis) -> jedis.decrBy(key, increment));
     }
 
     /**
@@ -425,7 +540,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key, append)) {
             return null;
         }
-        return exec((jedis) -> jedis.append(key, append));
+        return write(key, (jedis) -> jedis.append(key, append));
     }
 
     // ---------- string end
@@ -442,7 +557,7 @@ public class RedisClient {
         if (StringUtils.isBlank(key) || ArrayUtils.isEmpty(members)) {
             return null;
         }
-        return exec((jedis) -> jedis.hdel(key, members));
+        return write(key, (jedis) -> jedis.hdel(key, members));
     }
 
     /**
@@ -468,6 +583,9 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key, field)) {
             return null;
         }
+        if (null != nearCache) {
+            return nearCache.hget(key, field);
+        }
         return exec((jedis) -> jedis.hget(key, field));
     }
 
@@ -494,7 +612,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key, field) || increment == null) {
             return null;
         }
-        return exec((jedis) -> jedis.hincrBy(key, field, increment));
+        return write(key, (jedis) -> jedis.hincrBy(key, field, increment));
     }
 
     /**
@@ -546,7 +664,7 @@ public class RedisClient {
             return null;
         }
 
-        return exec((jedis) -> {
+        return write(key, (jedis) -> {
             return jedis.hset(key, field, value);
         }, RETRY_TIME);
     }
@@ -563,7 +681,7 @@ public class RedisClient {
             return null;
         }
 
-        return exec((jedis) -> {
+        return write(key, (jedis) -> {
             return jedis.hsetnx(key, field, value);
         }, RETRY_TIME);
     }
@@ -578,7 +696,7 @@ public class RedisClient {
         if (StringUtils.isAnyBlank(key) || MapUtils.isEmpty(news)) {
             return null;
         }
-        return exec((jedis) -> jedis.hmset(key, news));
+        return write(key, (jedis) -> jedis.hmset(key, news));
     }
 
     /**
@@ -1161,4 +1279,316 @@ public class RedisClient {
     }
 
     // ---------- HyperLogLog end
-}
\ No newline at end of file
+
+    // ---------- script begin
+
+    /**
+     * 执行 lua 脚本, 优先使用 EVALSHA, 服务端未缓存该脚本(NOSCRIPT)时使用 EVAL 并由服务端缓存 </br>
+     * 脚本可能修改 keys, 执行后使其在近端缓存中失效
+     *
+     * @param script
+     * @param keys
+     * @param args
+     * @return
+     */
+    public Object eval(String script, List<String> keys, List<String> args) {
+        if (StringUtils.isBlank(script)) {
+            return null;
+        }
+        String sha1 = scriptShas.computeIfAbsent(script, DigestUtils::sha1Hex);
+        RetryExecutor<Object, Jedis> executor = (jedis) -> {
+            try {
+                return jedis.evalsha(sha1, keys, args);
+            } catch (JedisDataException e) {
+                if (null != e.getMessage() && e.getMessage().startsWith("NOSCRIPT")) {
+                    return jedis.eval(script, keys, args);
+                }
+                throw e;
+            }
+        };
+        return CollectionUtils.isEmpty(keys) ? exec(executor) : write(keys, executor);
+    }
+    // ---------- script end
+
+    // ---------- pub/sub begin
+
+    /**
+     * 将信息发送到指定的频道
+     *
+     * @param channel
+     * @param message
+     * @return 接收到信息的订阅者数量
+     */
+    public Long publish(String channel, String message) {
+        if (StringUtils.isAnyBlank(channel, message)) {
+            return null;
+        }
+        return exec((jedis) -> jedis.publish(channel, message));
+    }
+
+    /**
+     * 订阅频道, 阻塞直到 jedisPubSub 取消订阅或连接断开, 期间独占一个连接
+     *
+     * @param jedisPubSub
+     * @param channels
+     */
+    public void subscribe(JedisPubSub jedisPubSub, String... channels) {
+        if (null == jedisPubSub || ArrayUtils.isEmpty(channels)) {
+            return;
+        }
+
+        Jedis jedis = null;
+        try {
+            jedis = jedisPoolContainer.getSubscribeClient();
+            jedis.subscribe(jedisPubSub, channels);
+        } catch (Exception e) {
+            if (null != jedis) {
+                jedisPoolContainer.executeError(jedis);
+            }
+            throw e;
+        } finally {
+            if (null != jedis) {
+                jedisPoolContainer.executeComplete(jedis, -1);
+                jedis.close();
+            }
+        }
+    }
+    // ---------- pub/sub end
+
+    // ---------- pipeline begin
+
+    /**
+     * 在同一个连接上批量执行命令, 所有命令只有一次网络往返 </br>
+     * 与单条命令一样经过 exec, 耗时超过阈值上报 executeError; 失败不重试, 部分命令可能已执行, 重试会重复执行其中的非幂等命令 </br>
+     * 开启近端缓存时, 无法得知 commands 写入了哪些 key, 需在执行后调用 {@link #invalidateNearCache(Collection)}
+     *
+     * @param commands 在 pipeline 上添加命令, 返回值中可保存命令的 {@link Response}, 本方法返回前已全部同步, 可直接 get
+     * @param <T>
+     * @return commands 的返回值
+     */
+    public <T> T pipelined(Function<Pipeline, T> commands) {
+        return pipelined(commands, 0);
+    }
+
+    /**
+     * 同 {@link #pipelined(Function)}, commands 全部为幂等命令(如 get、set、del)时可指定失败重试次数
+     *
+     * @param commands
+     * @param retry    失败后的重试次数, 重试时重新执行全部 commands
+     * @param <T>
+     * @return
+     */
+    public <T> T pipelined(Function<Pipeline, T> commands, int retry) {
+        if (null == commands) {
+            return null;
+        }
+
+        return exec(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            T t = commands.apply(pipeline);
+            pipeline.sync();
+            return t;
+        }, retry);
+    }
+
+    /**
+     * 在同一个连接上批量执行命令, 按添加顺序返回所有命令的结果, 失败不重试 </br>
+     * 开启近端缓存时需在执行后调用 {@link #invalidateNearCache(Collection)}
+     *
+     * @param commands
+     * @return
+     */
+    public List<Object> pipelinedAndReturnAll(Consumer<Pipeline> commands) {
+        return pipelinedAndReturnAll(commands, 0);
+    }
+
+    /**
+     * 同 {@link #pipelinedAndReturnAll(Consumer)}, commands 全部为幂等命令时可指定失败重试次数
+     *
+     * @param commands
+     * @param retry    失败后的重试次数, 重试时重新执行全部 commands
+     * @return
+     */
+    public List<Object> pipelinedAndReturnAll(Consumer<Pipeline> commands, int retry) {
+        if (null == commands) {
+            return null;
+        }
+
+        return exec(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            commands.accept(pipeline);
+            return pipeline.syncAndReturnAll();
+        }, retry);
+    }
+
+    /**
+     * 批量获取多个 key 的值
+     *
+     * @param keys
+     * @return key -> value, 顺序与 keys 一致, 不存在的 key 对应 null
+     */
+    public Map<String, String> batchGet(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return null;
+        }
+        return batch(keys, Pipeline::get, RETRY_TIME);
+    }
+
+    /**
+     * 批量获取多个哈希表中同一字段的值
+     *
+     * @param keys
+     * @param field
+     * @return key -> value, 顺序与 keys 一致
+     */
+    public Map<String, String> batchHget(Collection<String> keys, String field) {
+        if (CollectionUtils.isEmpty(keys) || StringUtils.isBlank(field)) {
+            return null;
+        }
+        return batch(keys, (pipeline, key) -> pipeline.hget(key, field), RETRY_TIME);
+    }
+
+    /**
+     * 批量获取多个哈希表的所有字段和值
+     *
+     * @param keys
+     * @return key -> 哈希表, 顺序与 keys 一致, 不存在的 key 对应空 map
+     */
+    public Map<String, Map<String, String>> batchHgetAll(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return null;
+        }
+        return batch(keys, Pipeline::hgetAll, 1);
+    }
+
+    /**
+     * 批量设置多个哈希表并设置过期时间
+     *
+     * @param keyHashes     key -> 哈希表
+     * @param expireSeconds 过期时间, 秒, <= 0 表示不设置
+     * @return key -> hmset 结果
+     */
+    public Map<String, String> batchHmset(Map<String, Map<String, String>> keyHashes, int expireSeconds) {
+        if (MapUtils.isEmpty(keyHashes)) {
+            return null;
+        }
+        return batchWrite(keyHashes.keySet(), (pipeline, key) -> {
+            Response<String> response = pipeline.hmset(key, keyHashes.get(key));
+            if (expireSeconds > 0) {
+                pipeline.expire(key, expireSeconds);
+            }
+            return response;
+        }, 1);
+    }
+
+    /**
+     * 批量向多个有序集合添加成员并设置过期时间
+     *
+     * @param keyScoreMembers key -> (member -> score)
+     * @param expireSeconds   过期时间, 秒, <= 0 表示不设置
+     * @return key -> 新增成员数
+     */
+    public Map<String, Long> batchZadd(Map<String, Map<String, Double>> keyScoreMembers, int expireSeconds) {
+        if (MapUtils.isEmpty(keyScoreMembers)) {
+            return null;
+        }
+        return batchWrite(keyScoreMembers.keySet(), (pipeline, key) -> {
+            Response<Long> response = pipeline.zadd(key, keyScoreMembers.get(key));
+            if (expireSeconds > 0) {
+                pipeline.expire(key, expireSeconds);
+            }
+            return response;
+        }, 1);
+    }
+
+    /**
+     * 批量获取多个有序集合指定索引区间内的成员
+     *
+     * @param keys
+     * @param start
+     * @param end
+     * @return key -> 成员, 顺序与 keys 一致
+     */
+    public Map<String, Set<String>> batchZrange(Collection<String> keys, long start, long end) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return null;
+        }
+        return batch(keys, (pipeline, key) -> pipeline.zrange(key, start, end), RETRY_TIME);
+    }
+
+    /**
+     * 批量设置过期时间
+     *
+     * @param keys
+     * @param seconds
+     * @return key -> 是否设置成功(1/0)
+     */
+    public Map<String, Long> batchExpire(Collection<String> keys, int seconds) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return null;
+        }
+        return batchWrite(keys, (pipeline, key) -> pipeline.expire(key, seconds), RETRY_TIME);
+    }
+
+    /**
+     * 批量删除
+     *
+     * @param keys
+     * @return key -> 删除数量
+     */
+    public Map<String, Long> batchDel(Collection<String> keys) {
+        if (CollectionUtils.isEmpty(keys)) {
+            return null;
+        }
+        return batchWrite(keys, Pipeline::del, RETRY_TIME);
+    }
+
+    /**
+     * 执行批量写命令, 结束后使近端缓存中的 keys 失效
+     */
+    private <V> Map<String, V> batchWrite(Collection<String> keys, BiFunction<Pipeline, String, Response<V>> command, int retry) {
+        if (null == nearCache) {
+            return batch(keys, command, retry);
+        }
+        try {
+            return batch(keys, command, retry);
+        } finally {
+            // 失败时部分命令也可能已执行
+            invalidateNearCache(keys);
+        }
+    }
+
+    /**
+     * 每个 key 执行一组命令, 每 PIPELINE_SYNC_SIZE 个 key 同步一次, 避免单次缓冲过多命令和结果
+     *
+     * @param keys
+     * @param command 对一个 key 添加命令, 返回需要的结果
+     * @param retry
+     * @param <V>
+     * @return
+     */
+    private <V> Map<String, V> batch(Collection<String> keys, BiFunction<Pipeline, String, Response<V>> command, int retry) {
+        return exec(jedis -> {
+            Pipeline pipeline = jedis.pipelined();
+            Map<String, Response<V>> responses = new LinkedHashMap<>(keys.size() * 4 / 3 + 1);
+            for (String key : keys) {
+                if (StringUtils.isBlank(key)) {
+                    continue;
+                }
+                responses.put(key, command.apply(pipeline, key));
+                if (responses.size() % PIPELINE_SYNC_SIZE == 0) {
+                    pipeline.sync();
+                }
+            }
+            pipeline.sync();
+
+            Map<String, V> result = new LinkedHashMap<>(responses.size() * 4 / 3 + 1);
+            for (Map.Entry<String, Response<V>> entry : responses.entrySet()) {
+                result.put(entry.getKey(), entry.getValue().get());
+            }
+            return result;
+        }, retry);
+    }
+
+    // ---------- pipeline end
+}
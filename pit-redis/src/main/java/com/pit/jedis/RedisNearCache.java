@@ -0,0 +1,311 @@
+package com.pit.jedis;
+
+import com.pit.core.localcache.ICacheDataLoader;
+import com.pit.core.localcache.caffeine.BaseCaffineCache;
+import com.pit.core.localcache.caffeine.CaffineCacheConfig;
+import com.pit.core.thread.PitThreadFactory;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.collections4.CollectionUtils;
+import org.apache.commons.lang3.StringUtils;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Pipeline;
+
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * {@link RedisClient} 的近端缓存, 将指定前缀 key 的 get/hget 结果缓存在本地 {@link BaseCaffineCache} 中 </br>
+ * 通过 redis pub/sub 广播失效通知: 本客户端的写命令完成后, 本地立即失效并向 channel 发布 key,
+ * 其他节点收到后失效本地缓存。订阅断开期间读请求不走本地缓存, 重新订阅成功后清空本地缓存, 避免使用断开期间错过通知的数据。
+ * <p>
+ * 不存在的 key/字段同样缓存; hash 按 key 缓存已读取过的字段, maxSize 限制的是 key 数,
+ * 每个 key 最多缓存 maxFieldsPerKey 个字段, 超出后新字段直接读取 redis
+ *
+ * @author gy
+ * @date 2026/10/18
+ */
+@Slf4j
+final class RedisNearCache implements AutoCloseable {
+    static final String DEFAULT_CHANNEL = "pit:near-cache:invalidate";
+
+    private static final long DEFAULT_MAX_SIZE = 10000;
+    private static final long DEFAULT_EXPIRE_AFTER_WRITE_MILLIS = 60000;
+    private static final int DEFAULT_MAX_FIELDS_PER_KEY = 1024;
+    private static final long RESUBSCRIBE_INTERVAL_MILLIS = 1000;
+
+    private final JedisPoolContainer jedisPoolContainer;
+    private final String[] keyPrefixes;
+    private final String channel;
+    private final int maxFieldsPerKey;
+    private final Function<String, String> stringLoader;
+    private final BiFunction<String, String, String> hashLoader;
+
+    private final StringCache stringCache;
+    private final HashCache hashCache;
+
+    private final Thread subscribeThread;
+    private volatile JedisPubSub pubSub;
+    /**
+     * 订阅成功后才使用本地缓存
+     */
+    private volatile boolean subscribed;
+    private volatile boolean running = true;
+
+    /**
+     * @param jedisPoolContainer
+     * @param config
+     * @param stringLoader       key 未缓存时读取 redis
+     * @param hashLoader         (key, field) 未缓存时读取 redis
+     */
+    RedisNearCache(JedisPoolContainer jedisPoolContainer, NearCacheConfig config,
+                   Function<String, String> stringLoader, BiFunction<String, String, String> hashLoader) {
+        this.jedisPoolContainer = jedisPoolContainer;
+        this.keyPrefixes = CollectionUtils.isEmpty(config.getKeyPrefixes()) ? new String[0] :
+                config.getKeyPrefixes().stream().filter(StringUtils::isNotEmpty).toArray(String[]::new);
+        this.channel = StringUtils.isNotBlank(config.getChannel()) ? config.getChannel() : DEFAULT_CHANNEL;
+        this.maxFieldsPerKey = config.getMaxFieldsPerKey() > 0 ? config.getMaxFieldsPerKey() : DEFAULT_MAX_FIELDS_PER_KEY;
+        this.stringLoader = stringLoader;
+        this.hashLoader = hashLoader;
+
+        CaffineCacheConfig cacheConfig = CaffineCacheConfig.builder()
+                .maxSize(config.getMaxSize() > 0 ? config.getMaxSize() : DEFAULT_MAX_SIZE)
+                .expireAfterWriteDuration(config.getExpireAfterWriteMillis() > 0 ?
+                        config.getExpireAfterWriteMillis() : DEFAULT_EXPIRE_AFTER_WRITE_MILLIS)
+                .expireAfterWriteTimeUnit(TimeUnit.MILLISECONDS)
+                .loadPoolSize(config.getLoadPoolSize())
+                .displayCacheStats(config.isDisplayCacheStats())
+                .build();
+        this.stringCache = new StringCache(cacheConfig, key -> Optional.ofNullable(stringLoader.apply(key)));
+        this.hashCache = new HashCache(cacheConfig, key -> new ConcurrentHashMap<>());
+
+        this.subscribeThread = new PitThreadFactory("pit-redis-near-cache").newThread(this::subscribeLoop);
+        this.subscribeThread.setDaemon(true);
+        this.subscribeThread.start();
+    }
+
+    /**
+     * 是否以任一配置的前缀开头
+     *
+     * @param key
+     * @return
+     */
+    boolean matches(String key) {
+        for (String prefix : keyPrefixes) {
+            if (key.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    String getChannel() {
+        return channel;
+    }
+
+    /**
+     * @return 是否已订阅失效通知, 未订阅时读请求不使用本地缓存
+     */
+    boolean isSubscribed() {
+        return subscribed;
+    }
+
+    String get(String key) {
+        if (!subscribed || !matches(key)) {
+            return stringLoader.apply(key);
+        }
+        return load(stringCache, key).orElse(null);
+    }
+
+    String hget(String key, String field) {
+        if (!subscribed || !matches(key)) {
+            return hashLoader.apply(key, field);
+        }
+        ConcurrentMap<String, Optional<String>> fields = load(hashCache, key);
+        Optional<String> value = fields.get(field);
+        if (null != value) {
+            return value.orElse(null);
+        }
+
+        // 在 map 外回源, 不阻塞同一个 map 上其他字段的读写; 回源期间 key 失效时, 结果只写入已移除的 map
+        value = Optional.ofNullable(hashLoader.apply(key, field));
+        if (fields.size() < maxFieldsPerKey) {
+            fields.putIfAbsent(field, value);
+        }
+        return value.orElse(null);
+    }
+
+    /**
+     * 写命令完成后调用, 失效本地缓存并通知其他节点
+     *
+     * @param keys
+     */
+    void invalidate(Collection<String> keys) {
+        String[] matched = keys.stream().filter(key -> null != key && matches(key)).toArray(String[]::new);
+        if (0 == matched.length) {
+            return;
+        }
+
+        for (String key : matched) {
+            remove(key);
+        }
+
+        Jedis jedis = null;
+        long start = 0;
+        try {
+            jedis = jedisPoolContainer.getClient();
+            start = System.nanoTime();
+            if (1 == matched.length) {
+                jedis.publish(channel, matched[0]);
+            } else {
+                Pipeline pipeline = jedis.pipelined();
+                for (String key : matched) {
+                    pipeline.publish(channel, key);
+                }
+                pipeline.sync();
+            }
+        } catch (Exception e) {
+            // 写命令已成功, 其他节点在过期时间内可能读到旧值
+            if (null != jedis) {
+                jedisPoolContainer.executeError(jedis);
+            }
+            log.error("redis near cache publish invalidation error, channel: " + channel, e);
+        } finally {
+            if (null != jedis) {
+                jedisPoolContainer.executeComplete(jedis, System.nanoTime() - start);
+                jedis.close();
+            }
+        }
+    }
+
+    /**
+     * 只失效本地缓存, 不通知其他节点
+     *
+     * @param key
+     */
+    void remove(String key) {
+        stringCache.remove(key);
+        hashCache.remove(key);
+    }
+
+    private void clearAll() {
+        stringCache.clearAll();
+        hashCache.clearAll();
+    }
+
+    private void subscribeLoop() {
+        while (running) {
+            Jedis jedis = null;
+            try {
+                jedis = jedisPoolContainer.getSubscribeClient();
+                pubSub = new InvalidationListener();
+                // 阻塞直到取消订阅或连接异常
+                jedis.subscribe(pubSub, channel);
+            } catch (Exception e) {
+                if (null != jedis) {
+                    jedisPoolContainer.executeError(jedis);
+                }
+                if (running) {
+                    log.error("redis near cache subscribe error, channel: " + channel, e);
+                }
+            } finally {
+                subscribed = false;
+                if (null != jedis) {
+                    jedisPoolContainer.executeComplete(jedis, -1);
+                    jedis.close();
+                }
+            }
+
+            if (running) {
+                try {
+                    TimeUnit.MILLISECONDS.sleep(RESUBSCRIBE_INTERVAL_MILLIS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 取消订阅, 之后的读请求不再使用本地缓存
+     */
+    @Override
+    public void close() {
+        running = false;
+        subscribed = false;
+        JedisPubSub current = pubSub;
+        if (null != current && current.isSubscribed()) {
+            try {
+                current.unsubscribe();
+            } catch (Exception e) {
+                log.warn("redis near cache unsubscribe error", e);
+            }
+        }
+        subscribeThread.interrupt();
+        clearAll();
+    }
+
+    private static <K, V> V load(BaseCaffineCache<K, V> cache, K key) {
+        try {
+            return cache.get(key).join();
+        } catch (CompletionException e) {
+            // 与不使用本地缓存时一样抛出回源的异常
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private class InvalidationListener extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            if (!running) {
+                // 订阅完成前已关闭
+                unsubscribe();
+                return;
+            }
+            // 未订阅期间可能错过了失效通知
+            clearAll();
+            subscribed = true;
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            remove(message);
+        }
+    }
+
+    private static final class StringCache extends BaseCaffineCache<String, Optional<String>> {
+        private StringCache(CaffineCacheConfig config, ICacheDataLoader<String, Optional<String>> loader) {
+            super(config, null, loader);
+        }
+
+        @Override
+        protected String getName() {
+            return "redis-near-cache-string";
+        }
+    }
+
+    private static final class HashCache extends BaseCaffineCache<String, ConcurrentMap<String, Optional<String>>> {
+        private HashCache(CaffineCacheConfig config,
+                          ICacheDataLoader<String, ConcurrentMap<String, Optional<String>>> loader) {
+            super(config, null, loader);
+        }
+
+        @Override
+        protected String getName() {
+            return "redis-near-cache-hash";
+        }
+    }
+}
@@ -14,16 +14,21 @@ import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
 import java.util.ArrayList;
-import java.util.LinkedList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ThreadLocalRandom;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
- * 通过Consul注册发现的JedisPool容器
+ * 通过Consul注册发现的JedisPool容器 </br>
+ * 每个实例统计耗时 EWMA(峰值敏感, 随时间衰减)及正在执行的调用数(不含订阅), 获取连接时随机取两个实例, 选择 耗时 * (并发数 + 1) 较小的一个,
+ * 使变慢但仍存活的实例自动分到更少的请求。实例列表为不可变数组, 变更时整体替换, 获取连接不加锁
  *
  * @author gy
  * @version 1.0
@@ -32,15 +37,26 @@ import java.util.concurrent.atomic.AtomicInteger;
 @Slf4j
 public class ConsulJedisPoolContainer implements JedisPoolContainer {
     /**
-     * 计数器，用于选择jedis实例，需要reset计数器的值
+     * 耗时 EWMA 的衰减时间常数, 无新样本时约 1s 衰减到 1/e
      */
-    private final static AtomicInteger counter = new AtomicInteger(0);
+    private final static double EWMA_DECAY_NANOS = TimeUnit.SECONDS.toNanos(1);
 
-    private final static int INCR_UPPER_LIMIT = 1000000000;
+    /**
+     * 调用失败时计入的耗时, 毫秒
+     */
+    private final static long ERROR_PENALTY_MILLIS = 1000;
 
     private static AtomicBoolean isInit = new AtomicBoolean(false);
 
-    private static List<RedisEntry> jedisPoolList = new LinkedList<>();
+    /**
+     * 当前可用实例, 只在加锁的 init/broken 中整体替换
+     */
+    private static volatile Node[] nodes = new Node[0];
+
+    /**
+     * 已借出且未调用 executeComplete 的连接及其实例, 用于计数及记录耗时时找到实例
+     */
+    private static final ConcurrentMap<Jedis, Node> borrowed = new ConcurrentHashMap<>();
 
     /**
      * Redis(consul) ip 实例错误计数器，10分钟刷新
@@ -80,28 +96,33 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
     }
 
     public JedisPool getJedisPool() {
-        for (int i = 0; i < 3; i++) {
-            if (jedisPoolList.size() == 1) {
-                return jedisPoolList.get(0).getJedisPool();
-            }
+        return select().entry.getJedisPool();
+    }
 
-            int index = counter.incrementAndGet();
-            if (index > INCR_UPPER_LIMIT) {
-                counter.set(0);
-            }
-            index = index % jedisPoolList.size();
-            RedisEntry entry = jedisPoolList.get(index);
-            if (null == entry) {
-                continue;
-            }
-            try {
-                return entry.getJedisPool();
-            } catch (Exception e) {
-                log.error("redis get redis client fail", e);
-                continue;
-            }
+    /**
+     * power of two choices: 随机取两个不同实例, 选择负载较低的一个
+     *
+     * @return
+     */
+    private Node select() {
+        Node[] current = nodes;
+        if (current.length == 0) {
+            throw new IllegalStateException("No available consul redis instance: " + consulRedisName);
         }
-        return jedisPoolList.get(0).getJedisPool();
+        if (current.length == 1) {
+            return current[0];
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int first = random.nextInt(current.length);
+        int second = random.nextInt(current.length - 1);
+        if (second >= first) {
+            second++;
+        }
+        long now = System.nanoTime();
+        Node a = current[first];
+        Node b = current[second];
+        return a.load(now) <= b.load(now) ? a : b;
     }
 
     @Override
@@ -109,7 +130,58 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
         if (!isInit.get()) {
             init();
         }
-        return getJedisPool().getResource();
+        Node node = select();
+        Jedis jedis = borrow(node);
+        node.inFlight.increment();
+        borrowed.put(jedis, node);
+        return jedis;
+    }
+
+    /**
+     * 订阅连接长时间占用, 不计入并发数, 否则订阅所在实例一直显得繁忙
+     *
+     * @return
+     */
+    @Override
+    public Jedis getSubscribeClient() {
+        if (!isInit.get()) {
+            init();
+        }
+        return borrow(select());
+    }
+
+    private Jedis borrow(Node node) {
+        try {
+            return node.entry.getJedisPool().getResource();
+        } catch (RuntimeException e) {
+            node.observe(TimeUnit.MILLISECONDS.toNanos(ERROR_PENALTY_MILLIS));
+            throw e;
+        }
+    }
+
+    @Override
+    public void executeComplete(Jedis jedis, long costNanos) {
+        if (null == jedis) {
+            return;
+        }
+        // 订阅连接不在 borrowed 中
+        Node node = borrowed.remove(jedis);
+        if (null == node) {
+            return;
+        }
+        node.inFlight.decrement();
+        if (costNanos >= 0) {
+            node.observe(costNanos);
+        }
+    }
+
+    private Node find(String host, int port) {
+        for (Node node : nodes) {
+            if (node.port == port && node.host.equals(host)) {
+                return node;
+            }
+        }
+        return null;
     }
 
     @Override
@@ -119,6 +191,14 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
         }
         String host = jedis.getClient().getHost();
         int port = jedis.getClient().getPort();
+        Node node = borrowed.get(jedis);
+        if (null == node) {
+            node = find(host, port);
+        }
+        if (null != node) {
+            // 立即降低该实例的选中概率, 不等错误次数达到上限
+            node.observe(TimeUnit.MILLISECONDS.toNanos(ERROR_PENALTY_MILLIS));
+        }
         String key = host + ":" + port;
         final int max = errorMaxTimes;
         try {
@@ -136,16 +216,18 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
      */
     public synchronized void broken(String key) {
         // 如果本来只剩下5个，则不会去掉
-        if (jedisPoolList.size() <= minIdle) {
+        if (nodes.length <= minIdle) {
             return;
         }
 
         // 查找要remove的entry
         RedisEntry removeEntry = null;
-        for (RedisEntry entry : jedisPoolList) {
-            if (key.equals(entry.getAddress())) {
-                removeEntry = entry;
-                break;
+        List<Node> remaining = new ArrayList<>(nodes.length);
+        for (Node node : nodes) {
+            if (null == removeEntry && key.equals(node.entry.getAddress())) {
+                removeEntry = node.entry;
+            } else {
+                remaining.add(node);
             }
         }
 
@@ -156,7 +238,7 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
 
         // 执行remove
         log.warn("consul redis removing, key {}", key);
-        jedisPoolList.remove(removeEntry);
+        nodes = remaining.toArray(new Node[0]);
         removeAddress.put(key, true);
         errorAddressCounter.refresh(key);
         try {
@@ -174,8 +256,8 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
             }
 
             // 如果现在有不重复添加
-            for (RedisEntry entry : jedisPoolList) {
-                if (server.equals(entry.getAddress())) {
+            for (Node node : nodes) {
+                if (server.equals(node.entry.getAddress())) {
                     continue OUTER;
                 }
             }
@@ -220,7 +302,58 @@ public class ConsulJedisPoolContainer implements JedisPoolContainer {
             jedisPool = new JedisPool(jedisPoolConfig, ip, Integer.parseInt(port), timeout, password);
         }
         RedisEntry redisEntry = new RedisEntry(ipAndPortStr, jedisPool);
-        jedisPoolList.add(redisEntry);
+        Node[] current = nodes;
+        Node[] updated = Arrays.copyOf(current, current.length + 1);
+        updated[current.length] = new Node(redisEntry, ip, Integer.parseInt(port));
+        nodes = updated;
+    }
+
+    /**
+     * 一个redis实例及其负载统计, 统计值的并发更新不加锁, 偶尔丢失样本不影响选择
+     */
+    private static final class Node {
+        private final RedisEntry entry;
+        private final String host;
+        private final int port;
+        /**
+         * 耗时 EWMA, 纳秒
+         */
+        private volatile double ewma;
+        private volatile long lastObserved = System.nanoTime();
+        /**
+         * 正在执行的调用数, getClient 时 +1, executeComplete 时 -1
+         */
+        private final LongAdder inFlight = new LongAdder();
+
+        private Node(RedisEntry entry, String host, int port) {
+            this.entry = entry;
+            this.host = host;
+            this.port = port;
+        }
+
+        /**
+         * 记录一次耗时, 大于当前值时直接取该值(峰值敏感), 否则按距上次记录的时间加权
+         */
+        private void observe(long costNanos) {
+            long now = System.nanoTime();
+            double current = ewma;
+            if (costNanos > current) {
+                ewma = costNanos;
+            } else {
+                double weight = Math.exp(-(now - lastObserved) / EWMA_DECAY_NANOS);
+                ewma = current * weight + costNanos * (1 - weight);
+            }
+            lastObserved = now;
+        }
+
+        /**
+         * 负载 = 衰减后的耗时 * (并发数 + 1), 长时间未被选中的慢实例逐渐恢复被选中的机会
+         */
+        private double load(long now) {
+            double decayed = ewma * Math.exp(-Math.max(0, now - lastObserved) / EWMA_DECAY_NANOS);
+            // +1 使尚无耗时样本时并发数仍然生效
+            return (decayed + 1) * (Math.max(0, inFlight.sum()) + 1);
+        }
     }
 
     /**
@@ -1,34 +1,100 @@
 package com.pit.jedis.lock;
 
+import com.pit.core.id.UUIDUtils;
 import com.pit.core.net.LocalIpHolder;
+import com.pit.core.thread.PitThreadFactory;
 import com.pit.core.time.CachingSystemTimer2;
 import com.pit.jedis.RedisClient;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
+import redis.clients.jedis.JedisPubSub;
 
-import java.util.concurrent.ThreadLocalRandom;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
 
 /**
- * redis分布式锁
+ * redis分布式锁 </br>
+ * 加锁使用 SET NX PX, 值为每次加锁生成的唯一 token, 只有持有者才能解锁和续期(lua 比较后删除/续期)。
+ * 持有期间看门狗每 1/3 租期续期一次, 进程退出后锁在租期结束时自动释放。
+ * 解锁时在同一脚本中向 channel 发布 key, 等待中的线程收到通知后立即重试, 不轮询;
+ * 订阅未建立时最多等待 {@link #UNSUBSCRIBED_WAIT_MILLIS} 后重试。
+ * 订阅线程在首次等待锁时启动并占用一个连接, 不再使用时调用 {@link #close()} 取消订阅, 多个实例应共享同一个 RedisLock
  *
  * @author gy
  * @version 1.0
  * @date 2020/7/4.
  */
-public class RedisLock {
-    private RedisClient redisClient;
+@Slf4j
+public class RedisLock implements AutoCloseable {
+    public static final String DEFAULT_CHANNEL = "pit:lock:release";
 
-    public static long justWait(Long sleepTime) {
-        try {
-            Thread.sleep(sleepTime, ThreadLocalRandom.current().nextInt(Math.max((int) (sleepTime >> 5), 1))); // 除以32
-        } catch (InterruptedException e) {
-            // nothing to do
-        }
-        return sleepTime << 1;
+    private static final long UNSUBSCRIBED_WAIT_MILLIS = 100;
+    private static final long RESUBSCRIBE_INTERVAL_MILLIS = 1000;
+
+    /**
+     * 加锁成功或锁已被当前 token 持有(重试)时返回 nil, 否则返回锁的剩余毫秒数
+     */
+    static final String LOCK_SCRIPT =
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return nil end " +
+                    "if redis.call('get', KEYS[1]) == ARGV[1] then return nil end " +
+                    "return redis.call('pttl', KEYS[1])";
+    static final String UNLOCK_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "redis.call('del', KEYS[1]) " +
+                    "redis.call('publish', ARGV[2], KEYS[1]) " +
+                    "return 1 end " +
+                    "return 0";
+    static final String RENEW_SCRIPT =
+            "if redis.call('get', KEYS[1]) == ARGV[1] then " +
+                    "return redis.call('pexpire', KEYS[1], ARGV[2]) end " +
+                    "return 0";
+    /**
+     * 兼容旧接口: 值为实例 id, 同一实例不可重入
+     */
+    static final String LEGACY_LOCK_SCRIPT =
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return nil end " +
+                    "return redis.call('pttl', KEYS[1])";
+    /**
+     * 兼容旧接口: 不校验持有者直接删除
+     */
+    static final String LEGACY_UNLOCK_SCRIPT =
+            "if redis.call('del', KEYS[1]) == 1 then " +
+                    "redis.call('publish', ARGV[1], KEYS[1]) end " +
+                    "return 1";
+
+    private final RedisClient redisClient;
+    private final String channel;
+
+    /**
+     * key -> 本进程中等待该锁的线程
+     */
+    private final ConcurrentHashMap<String, Set<Thread>> waiters = new ConcurrentHashMap<>();
+    private final AtomicBoolean subscribeStarted = new AtomicBoolean();
+    private volatile boolean subscribed;
+    private volatile boolean closed;
+    private volatile Thread subscribeThread;
+    private volatile ReleaseListener listener;
+
+    public RedisLock(RedisClient redisClient) {
+        this(redisClient, DEFAULT_CHANNEL);
     }
 
-    public void RedisLock(RedisClient redisClient) {
+    /**
+     * @param redisClient
+     * @param channel     解锁通知频道, 使用同一个锁 key 的进程需一致
+     */
+    public RedisLock(RedisClient redisClient, String channel) {
         this.redisClient = redisClient;
+        this.channel = channel;
     }
 
     /**
@@ -37,101 +103,372 @@ public class RedisLock {
      * @param <T>
      * @param lockCallback callback
      * @param key          锁的key
-     * @param timeout      超时时间px
+     * @param timeout      租期px, 回调执行期间自动续期
      * @return
      */
     public <T> Pair<Boolean, T> tryLock(LockCallback<T> lockCallback, String key, Long timeout) {
-        if (redisClient.setNX(key, LocalIpHolder.getInstanceId(), timeout)) {
-            long begin = CachingSystemTimer2.getNow();
-            try {
-                return ImmutablePair.of(true, lockCallback.exec());
-            } finally {
-                unlock(key, begin, timeout);
-            }
-        } else {
-            return ImmutablePair.of(false, null);
-        }
+        return execute(tryLock(key, timeout.longValue()), lockCallback);
     }
 
     /**
      * 尝试获取锁（不包含解锁操作，需手动解锁）
      *
+     * @param key         锁的key
+     * @param leaseMillis 租期px, 解锁前自动续期
+     * @return 获取失败返回 null
+     */
+    public Lease tryLock(String key, long leaseMillis) {
+        String token = newToken();
+        return null == acquire(LOCK_SCRIPT, key, token, leaseMillis) ? new Lease(key, token, leaseMillis) : null;
+    }
+
+    /**
+     * 尝试获取锁（不包含解锁操作，需手动解锁）, 不续期
+     *
      * @param key     锁的key
      * @param timeout 超时时间px
-     * @return
+     * @return 是否获取成功及当前时间
+     * @deprecated 任何人都能解锁且不续期, 使用 {@link #tryLock(String, long)}
      */
+    @Deprecated
     public Pair<Boolean, Long> tryLock(String key, Long timeout) {
-        if (redisClient.setNX(key, LocalIpHolder.getInstanceId(), timeout)) {
-            return ImmutablePair.of(true, CachingSystemTimer2.getNow());
-        }
-        return ImmutablePair.of(false, CachingSystemTimer2.getNow());
+        boolean locked = null == acquire(LEGACY_LOCK_SCRIPT, key, LocalIpHolder.getInstanceId(), timeout);
+        return ImmutablePair.of(locked, CachingSystemTimer2.getNow());
     }
 
     /**
-     * 尝试获取锁（包含解锁操作）
+     * 获取锁（包含解锁操作）, 最多等待 timeout
      *
      * @param <T>
      * @param lockCallback callback
      * @param key          锁的key
-     * @param timeout      超时时间px
+     * @param timeout      租期及最长等待时间px, 回调执行期间自动续期
      * @return
      */
     public <T> Pair<Boolean, T> lock(LockCallback<T> lockCallback, String key, Long timeout) {
-        long waitTime = Math.max(timeout >> 3, 1);// 除以8
-        long milliseconds = CachingSystemTimer2.getNow();
-        do {
-            if (redisClient.setNX(key, LocalIpHolder.getInstanceId(), timeout)) {
-                long begin = CachingSystemTimer2.getNow();
-                try {
-                    return ImmutablePair.of(true, lockCallback.exec());
-                } finally {
-                    unlock(key, begin, timeout);
-                }
-            }
-            waitTime = justWait(waitTime);
-        } while (CachingSystemTimer2.getNow() - milliseconds < timeout);
-        return ImmutablePair.of(false, null);
+        return execute(lock(key, timeout, timeout), lockCallback);
     }
 
     /**
-     * 尝试获取锁（不包含解锁操作，需手动解锁）
+     * 获取锁（不包含解锁操作，需手动解锁）, 最多等待 waitMillis
+     *
+     * @param key         锁的key
+     * @param leaseMillis 租期px, 解锁前自动续期
+     * @param waitMillis  最长等待时间
+     * @return 超时或线程被中断时返回 null, 中断状态保留
+     */
+    public Lease lock(String key, long leaseMillis, long waitMillis) {
+        String token = newToken();
+        return await(LOCK_SCRIPT, key, token, leaseMillis, waitMillis) ? new Lease(key, token, leaseMillis) : null;
+    }
+
+    /**
+     * 获取锁（不包含解锁操作，需手动解锁）, 最多等待 timeout, 不续期
      *
      * @param key     锁的key
-     * @param timeout 超时时间px
-     * @return
+     * @param timeout 超时时间及最长等待时间px
+     * @return 是否获取成功及开始等待的时间
+     * @deprecated 任何人都能解锁且不续期, 使用 {@link #lock(String, long, long)}
      */
+    @Deprecated
     public Pair<Boolean, Long> lock(String key, long timeout) {
-        long waitTime = Math.max(timeout >> 3, 1);// 除以8
-        long milliseconds = CachingSystemTimer2.getNow();
-        do {
-            if (redisClient.setNX(key, LocalIpHolder.getInstanceId(), timeout)) {
-                return ImmutablePair.of(true, milliseconds);
-            }
-            waitTime = justWait(waitTime);
-        } while (CachingSystemTimer2.getNow() - milliseconds < timeout);
-        return ImmutablePair.of(false, milliseconds);
+        long begin = CachingSystemTimer2.getNow();
+        return ImmutablePair.of(await(LEGACY_LOCK_SCRIPT, key, LocalIpHolder.getInstanceId(), timeout, timeout), begin);
     }
 
     /**
-     * 解锁
+     * 解锁, 不校验持有者
      *
      * @param key
+     * @deprecated 可能释放其他持有者的锁, 使用 {@link Lease#unlock()}
      */
+    @Deprecated
     public void unlock(String key) {
-        redisClient.del(key);
+        redisClient.eval(LEGACY_UNLOCK_SCRIPT, Collections.singletonList(key), Collections.singletonList(channel));
     }
 
     /**
-     * 安全解锁
+     * 未超时才解锁, 不校验持有者
      *
      * @param key
      * @param begin   锁开始的时间
      * @param timeout 超时时间px
+     * @deprecated 可能释放其他持有者的锁, 使用 {@link Lease#unlock()}
      */
+    @Deprecated
     public void unlock(String key, long begin, long timeout) {
-        // 未超时才解锁
         if (CachingSystemTimer2.getNow() - begin < timeout) {
-            redisClient.del(key);
+            unlock(key);
+        }
+    }
+
+    /**
+     * 加锁, 失败时等待解锁通知或锁过期后重试, 最多等待 waitMillis
+     *
+     * @return 超时或线程被中断时返回 false, 中断状态保留
+     */
+    private boolean await(String script, String key, String token, long leaseMillis, long waitMillis) {
+        Long ttl = acquire(script, key, token, leaseMillis);
+        if (null == ttl) {
+            return true;
+        }
+
+        ensureSubscribed();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(waitMillis);
+        Thread current = Thread.currentThread();
+        // 先登记再重试, 重试失败到 park 之间的解锁通知不会丢失
+        waiters.compute(key, (k, threads) -> {
+            Set<Thread> result = null == threads ? ConcurrentHashMap.newKeySet() : threads;
+            result.add(current);
+            return result;
+        });
+        try {
+            while (true) {
+                ttl = acquire(script, key, token, leaseMillis);
+                if (null == ttl) {
+                    return true;
+                }
+
+                long remaining = deadline - System.nanoTime();
+                if (remaining <= 0 || current.isInterrupted()) {
+                    return false;
+                }
+                // 最多等到锁过期, 持有者崩溃时不依赖通知
+                long wait = ttl > 0 ? Math.min(remaining, TimeUnit.MILLISECONDS.toNanos(ttl)) : remaining;
+                if (!subscribed) {
+                    wait = Math.min(wait, TimeUnit.MILLISECONDS.toNanos(UNSUBSCRIBED_WAIT_MILLIS));
+                }
+                if (-2 != ttl) {
+                    // -2: 锁刚被释放, 立即重试
+                    LockSupport.parkNanos(this, wait);
+                }
+            }
+        } finally {
+            waiters.computeIfPresent(key, (k, threads) -> {
+                threads.remove(current);
+                return threads.isEmpty() ? null : threads;
+            });
+        }
+    }
+
+    private <T> Pair<Boolean, T> execute(Lease lease, LockCallback<T> lockCallback) {
+        if (null == lease) {
+            return ImmutablePair.of(false, null);
+        }
+        try {
+            return ImmutablePair.of(true, lockCallback.exec());
+        } finally {
+            lease.unlock();
+        }
+    }
+
+    /**
+     * @return 加锁成功返回 null, 否则返回锁的剩余毫秒数(-1 无过期时间, -2 已不存在)
+     */
+    private Long acquire(String script, String key, String token, long leaseMillis) {
+        if (StringUtils.isBlank(key) || leaseMillis <= 0) {
+            throw new IllegalArgumentException("Illegal lock key: " + key + ", leaseMillis: " + leaseMillis);
+        }
+        return (Long) redisClient.eval(script, Collections.singletonList(key),
+                Arrays.asList(token, String.valueOf(leaseMillis)));
+    }
+
+    private static String newToken() {
+        return LocalIpHolder.getInstanceId() + ":" + UUIDUtils.getUUID();
+    }
+
+    /**
+     * 首次等待锁时启动订阅线程, 占用一个连接; 关闭后不再订阅, 等待者退化为轮询
+     */
+    private void ensureSubscribed() {
+        if (closed || !subscribeStarted.compareAndSet(false, true)) {
+            return;
+        }
+        Thread thread = new PitThreadFactory("pit-redis-lock").newThread(this::subscribeLoop);
+        thread.setDaemon(true);
+        subscribeThread = thread;
+        thread.start();
+    }
+
+    private void subscribeLoop() {
+        while (!closed) {
+            ReleaseListener current = new ReleaseListener();
+            listener = current;
+            try {
+                // 阻塞直到取消订阅或连接断开
+                redisClient.subscribe(current, channel);
+            } catch (Exception e) {
+                if (!closed) {
+                    log.error("redis lock subscribe error, channel: " + channel, e);
+                }
+            } finally {
+                subscribed = false;
+            }
+
+            if (closed) {
+                return;
+            }
+            try {
+                TimeUnit.MILLISECONDS.sleep(RESUBSCRIBE_INTERVAL_MILLIS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * 取消订阅并停止订阅线程, 释放其占用的连接 </br>
+     * 不影响已持有的锁, 之后仍可加锁, 等待锁时按 {@link #UNSUBSCRIBED_WAIT_MILLIS} 轮询
+     */
+    @Override
+    public void close() {
+        closed = true;
+        subscribed = false;
+        ReleaseListener current = listener;
+        if (null != current && current.isSubscribed()) {
+            try {
+                current.unsubscribe();
+            } catch (Exception e) {
+                log.warn("redis lock unsubscribe error, channel: " + channel, e);
+            }
+        }
+        Thread thread = subscribeThread;
+        if (null != thread) {
+            thread.interrupt();
+        }
+    }
+
+    private class ReleaseListener extends JedisPubSub {
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            if (closed) {
+                // 订阅完成前已关闭
+                unsubscribe();
+                return;
+            }
+            subscribed = true;
+            // 订阅前可能错过了解锁通知
+            waiters.values().forEach(threads -> threads.forEach(LockSupport::unpark));
+        }
+
+        @Override
+        public void onMessage(String channel, String message) {
+            Set<Thread> threads = waiters.get(message);
+            if (null != threads) {
+                threads.forEach(LockSupport::unpark);
+            }
+        }
+    }
+
+    /**
+     * 一次加锁的凭证, 持有期间由看门狗续期, 使用后必须 {@link #unlock()}
+     */
+    public final class Lease implements AutoCloseable {
+        private final String key;
+        private final String token;
+        private final long leaseMillis;
+        private final long acquiredAt;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private volatile ScheduledFuture<?> renewal;
+
+        private Lease(String key, String token, long leaseMillis) {
+            this.key = key;
+            this.token = token;
+            this.leaseMillis = leaseMillis;
+            this.acquiredAt = CachingSystemTimer2.getNow();
+            long period = Math.max(leaseMillis / 3, 1);
+            this.renewal = WatchdogHolder.EXECUTOR.scheduleWithFixedDelay(this::renewQuietly,
+                    period, period, TimeUnit.MILLISECONDS);
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getToken() {
+            return token;
+        }
+
+        /**
+         * @return 加锁时间, 毫秒时间戳
+         */
+        public long getAcquiredAt() {
+            return acquiredAt;
+        }
+
+        /**
+         * 将锁的过期时间重置为租期
+         *
+         * @return 锁已不属于当前持有者时返回 false
+         */
+        public boolean renew() {
+            if (released.get()) {
+                return false;
+            }
+            Object result = redisClient.eval(RENEW_SCRIPT, Collections.singletonList(key),
+                    Arrays.asList(token, String.valueOf(leaseMillis)));
+            return Long.valueOf(1L).equals(result);
+        }
+
+        private void renewQuietly() {
+            try {
+                if (!renew() && !released.get()) {
+                    log.warn("redis lock lost, key: {}", key);
+                    cancelRenewal();
+                }
+            } catch (Exception e) {
+                // 下个周期重试, 租期内恢复即可
+                log.error("redis lock renew error, key: " + key, e);
+            }
+        }
+
+        /**
+         * 解锁并唤醒等待者, 只释放当前持有者的锁
+         *
+         * @return 锁已过期或已解锁时返回 false
+         */
+        public boolean unlock() {
+            if (!released.compareAndSet(false, true)) {
+                return false;
+            }
+            cancelRenewal();
+            Object result = redisClient.eval(UNLOCK_SCRIPT, Collections.singletonList(key),
+                    Arrays.asList(token, channel));
+            return Long.valueOf(1L).equals(result);
+        }
+
+        private void cancelRenewal() {
+            ScheduledFuture<?> current = renewal;
+            if (null != current) {
+                current.cancel(false);
+            }
+        }
+
+        @Override
+        public void close() {
+            unlock();
+        }
+    }
+
+    /**
+     * 所有锁共享的续期线程池, 首次加锁时创建 </br>
+     * 续期是同步的 eval, 一次续期最长阻塞到 redis 超时, 期间同一线程上的其他续期被推迟;
+     * 线程数取 cpu 核数(至少 2), 单个慢请求不会拖延所有租约。续期周期为 1/3 租期, 余下 2/3 租期可容忍推迟和一次失败重试
+     */
+    private static class WatchdogHolder {
+        private static final int THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+        private static final ScheduledThreadPoolExecutor EXECUTOR = newExecutor();
+
+        private static ScheduledThreadPoolExecutor newExecutor() {
+            PitThreadFactory threadFactory = new PitThreadFactory("pit-redis-lock-watchdog");
+            ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(THREADS, r -> {
+                Thread thread = threadFactory.newThread(r);
+                thread.setDaemon(true);
+                return thread;
+            });
+            executor.setRemoveOnCancelPolicy(true);
+            return executor;
         }
     }
 }
@@ -0,0 +1,486 @@
+package com.pit.jedis;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 进程内的 redis 服务端, 实现 RESP 协议及测试用到的少量命令: string/hash/zset 读写、过期、pub/sub </br>
+ * 不执行 lua, EVAL 的脚本需先通过 {@link #registerScript(String, Script)} 用 java 模拟, EVALSHA 总是返回 NOSCRIPT
+ */
+public class FakeRedisServer implements AutoCloseable {
+    private final ServerSocket serverSocket;
+    private final Map<String, String> strings = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, String>> hashes = new ConcurrentHashMap<>();
+    private final Map<String, Map<String, Double>> zsets = new ConcurrentHashMap<>();
+    private final Map<String, Set<Connection>> subscribers = new ConcurrentHashMap<>();
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    private final Map<String, AtomicInteger> commandCounts = new ConcurrentHashMap<>();
+    /**
+     * key -> 过期时间, 毫秒时间戳, 访问时惰性删除
+     */
+    private final Map<String, Long> expireAt = new ConcurrentHashMap<>();
+    private final Map<String, Script> scripts = new ConcurrentHashMap<>();
+    private volatile boolean running = true;
+
+    public FakeRedisServer() throws IOException {
+        this.serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        Thread acceptor = new Thread(this::acceptLoop, "fake-redis-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * 直接修改数据, 不经过客户端, 不发布失效通知
+     */
+    public void putString(String key, String value) {
+        strings.put(key, value);
+    }
+
+    public void putHash(String key, String field, String value) {
+        hashes.computeIfAbsent(key, k -> new ConcurrentHashMap<>()).put(field, value);
+    }
+
+    /**
+     * @param command 大写命令名
+     * @return 服务端收到该命令的次数
+     */
+    public int getCommandCount(String command) {
+        AtomicInteger count = commandCounts.get(command);
+        return null == count ? 0 : count.get();
+    }
+
+    /**
+     * 注册脚本的模拟实现, 脚本在服务端锁内执行, 与其他脚本互斥
+     *
+     * @param script 脚本原文
+     * @param handler
+     */
+    public void registerScript(String script, Script handler) {
+        scripts.put(script, handler);
+    }
+
+    public String getString(String key) {
+        expireIfNeeded(key);
+        return strings.get(key);
+    }
+
+    /**
+     * SET key value NX PX pxMillis
+     *
+     * @return 是否设置成功
+     */
+    public boolean setIfAbsent(String key, String value, long pxMillis) {
+        expireIfNeeded(key);
+        if (null != strings.putIfAbsent(key, value)) {
+            return false;
+        }
+        expireAt.put(key, System.currentTimeMillis() + pxMillis);
+        return true;
+    }
+
+    /**
+     * @return 剩余毫秒数, -1 无过期时间, -2 不存在
+     */
+    public long pttl(String key) {
+        expireIfNeeded(key);
+        if (!exists(key)) {
+            return -2;
+        }
+        Long at = expireAt.get(key);
+        return null == at ? -1 : Math.max(0, at - System.currentTimeMillis());
+    }
+
+    /**
+     * @return key 存在时返回 true
+     */
+    public boolean pexpire(String key, long millis) {
+        expireIfNeeded(key);
+        if (!exists(key)) {
+            return false;
+        }
+        expireAt.put(key, System.currentTimeMillis() + millis);
+        return true;
+    }
+
+    /**
+     * @return key 存在时返回 true
+     */
+    public boolean delete(String key) {
+        expireIfNeeded(key);
+        expireAt.remove(key);
+        boolean removed = null != strings.remove(key);
+        removed |= null != hashes.remove(key);
+        removed |= null != zsets.remove(key);
+        return removed;
+    }
+
+    private boolean exists(String key) {
+        return strings.containsKey(key) || hashes.containsKey(key) || zsets.containsKey(key);
+    }
+
+    /**
+     * @return 收到消息的订阅者数
+     */
+    public int publish(String channel, String message) {
+        Set<Connection> set = subscribers.get(channel);
+        if (null == set) {
+            return 0;
+        }
+        int count = 0;
+        for (Connection connection : set) {
+            try {
+                connection.write("*3\r\n" + bulk("message") + bulk(channel) + bulk(message));
+                count++;
+            } catch (IOException e) {
+                connection.close();
+            }
+        }
+        return count;
+    }
+
+    private void expireIfNeeded(String key) {
+        Long at = expireAt.get(key);
+        if (null != at && at <= System.currentTimeMillis() && expireAt.remove(key, at)) {
+            strings.remove(key);
+            hashes.remove(key);
+            zsets.remove(key);
+        }
+    }
+
+    private static String bulk(String value) {
+        return "$" + value.getBytes(StandardCharsets.UTF_8).length + "\r\n" + value + "\r\n";
+    }
+
+    public int getSubscriberCount(String channel) {
+        Set<Connection> set = subscribers.get(channel);
+        return null == set ? 0 : set.size();
+    }
+
+    /**
+     * 断开所有订阅中的连接, 模拟网络故障
+     */
+    public void disconnectSubscribers() {
+        for (Set<Connection> set : subscribers.values()) {
+            for (Connection connection : set) {
+                connection.close();
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        serverSocket.close();
+        for (Connection connection : connections) {
+            connection.close();
+        }
+    }
+
+    private void acceptLoop() {
+        while (running) {
+            try {
+                Connection connection = new Connection(serverSocket.accept());
+                connections.add(connection);
+                Thread thread = new Thread(connection, "fake-redis-connection");
+                thread.setDaemon(true);
+                thread.start();
+            } catch (IOException e) {
+                // 已关闭
+            }
+        }
+    }
+
+    private class Connection implements Runnable {
+        private final Socket socket;
+        private final InputStream in;
+        private final OutputStream out;
+        private final Set<String> channels = ConcurrentHashMap.newKeySet();
+
+        private Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.in = new BufferedInputStream(socket.getInputStream());
+            this.out = socket.getOutputStream();
+        }
+
+        @Override
+        public void run() {
+            try {
+                List<String> args;
+                while (null != (args = readCommand())) {
+                    String command = args.get(0).toUpperCase();
+                    commandCounts.computeIfAbsent(command, k -> new AtomicInteger()).incrementAndGet();
+                    handle(command, args);
+                }
+            } catch (IOException e) {
+                // 连接断开
+            } finally {
+                close();
+            }
+        }
+
+        private void handle(String command, List<String> args) throws IOException {
+            switch (command) {
+                case "PING":
+                    write("+PONG\r\n");
+                    break;
+                case "QUIT":
+                    write("+OK\r\n");
+                    close();
+                    break;
+                case "GET":
+                    writeBulk(getString(args.get(1)));
+                    break;
+                case "SET":
+                    expireAt.remove(args.get(1));
+                    strings.put(args.get(1), args.get(2));
+                    hashes.remove(args.get(1));
+                    write("+OK\r\n");
+                    break;
+                case "PSETEX":
+                    strings.put(args.get(1), args.get(3));
+                    hashes.remove(args.get(1));
+                    // RedisClient.set(key, value) 使用 PSETEX 0, 与之前一样视为不过期
+                    long px = Long.parseLong(args.get(2));
+                    if (px > 0) {
+                        expireAt.put(args.get(1), System.currentTimeMillis() + px);
+                    } else {
+                        expireAt.remove(args.get(1));
+                    }
+                    write("+OK\r\n");
+                    break;
+                case "DEL": {
+                    int count = 0;
+                    for (int i = 1; i < args.size(); i++) {
+                        count += delete(args.get(i)) ? 1 : 0;
+                    }
+                    write(":" + count + "\r\n");
+                    break;
+                }
+                case "EVALSHA":
+                    write("-NOSCRIPT No matching script. Please use EVAL.\r\n");
+                    break;
+                case "EVAL":
+                    eval(args);
+                    break;
+                case "HGET": {
+                    expireIfNeeded(args.get(1));
+                    Map<String, String> hash = hashes.get(args.get(1));
+                    writeBulk(null == hash ? null : hash.get(args.get(2)));
+                    break;
+                }
+                case "HSET": {
+                    String previous = hashes.computeIfAbsent(args.get(1), k -> new ConcurrentHashMap<>())
+                            .put(args.get(2), args.get(3));
+                    write(":" + (null == previous ? 1 : 0) + "\r\n");
+                    break;
+                }
+                case "HGETALL": {
+                    expireIfNeeded(args.get(1));
+                    Map<String, String> hash = hashes.get(args.get(1));
+                    List<String> values = new ArrayList<>();
+                    if (null != hash) {
+                        for (Map.Entry<String, String> entry : hash.entrySet()) {
+                            values.add(entry.getKey());
+                            values.add(entry.getValue());
+                        }
+                    }
+                    writeArray(values);
+                    break;
+                }
+                case "HMSET": {
+                    Map<String, String> hash = hashes.computeIfAbsent(args.get(1), k -> new ConcurrentHashMap<>());
+                    for (int i = 2; i + 1 < args.size(); i += 2) {
+                        hash.put(args.get(i), args.get(i + 1));
+                    }
+                    write("+OK\r\n");
+                    break;
+                }
+                case "EXPIRE":
+                    write(":" + (pexpire(args.get(1), Long.parseLong(args.get(2)) * 1000) ? 1 : 0) + "\r\n");
+                    break;
+                case "ZADD": {
+                    Map<String, Double> zset = zsets.computeIfAbsent(args.get(1), k -> new ConcurrentHashMap<>());
+                    int added = 0;
+                    for (int i = 2; i + 1 < args.size(); i += 2) {
+                        added += null == zset.put(args.get(i + 1), Double.parseDouble(args.get(i))) ? 1 : 0;
+                    }
+                    write(":" + added + "\r\n");
+                    break;
+                }
+                case "ZRANGE": {
+                    expireIfNeeded(args.get(1));
+                    Map<String, Double> zset = zsets.get(args.get(1));
+                    List<String> members = new ArrayList<>();
+                    if (null != zset) {
+                        zset.entrySet().stream()
+                                .sorted(Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()))
+                                .forEach(entry -> members.add(entry.getKey()));
+                    }
+                    int size = members.size();
+                    int start = Integer.parseInt(args.get(2));
+                    int stop = Integer.parseInt(args.get(3));
+                    start = Math.max(0, start < 0 ? size + start : start);
+                    stop = Math.min(size - 1, stop < 0 ? size + stop : stop);
+                    writeArray(start > stop ? new ArrayList<>() : members.subList(start, stop + 1));
+                    break;
+                }
+                case "PUBLISH":
+                    write(":" + publish(args.get(1), args.get(2)) + "\r\n");
+                    break;
+                case "SUBSCRIBE":
+                    for (int i = 1; i < args.size(); i++) {
+                        String channel = args.get(i);
+                        channels.add(channel);
+                        subscribers.computeIfAbsent(channel, k -> ConcurrentHashMap.newKeySet()).add(this);
+                        write("*3\r\n" + bulk("subscribe") + bulk(channel) + ":" + channels.size() + "\r\n");
+                    }
+                    break;
+                case "UNSUBSCRIBE": {
+                    List<String> targets = args.size() > 1 ? args.subList(1, args.size()) : new ArrayList<>(channels);
+                    for (String channel : targets) {
+                        unsubscribe(channel);
+                        write("*3\r\n" + bulk("unsubscribe") + bulk(channel) + ":" + channels.size() + "\r\n");
+                    }
+                    if (targets.isEmpty()) {
+                        write("*3\r\n" + bulk("unsubscribe") + "$-1\r\n:0\r\n");
+                    }
+                    break;
+                }
+                default:
+                    write("-ERR unknown command '" + command + "'\r\n");
+            }
+        }
+
+        private void eval(List<String> args) throws IOException {
+            Script script = scripts.get(args.get(1));
+            if (null == script) {
+                write("-ERR unknown script\r\n");
+                return;
+            }
+            int numKeys = Integer.parseInt(args.get(2));
+            List<String> keys = args.subList(3, 3 + numKeys);
+            List<String> argv = args.subList(3 + numKeys, args.size());
+            Object result;
+            synchronized (FakeRedisServer.this) {
+                result = script.exec(keys, argv);
+            }
+            if (null == result) {
+                write("$-1\r\n");
+            } else if (result instanceof Number) {
+                write(":" + ((Number) result).longValue() + "\r\n");
+            } else {
+                writeBulk(result.toString());
+            }
+        }
+
+        private void unsubscribe(String channel) {
+            channels.remove(channel);
+            Set<Connection> set = subscribers.get(channel);
+            if (null != set) {
+                set.remove(this);
+            }
+        }
+
+        private synchronized void write(String reply) throws IOException {
+            out.write(reply.getBytes(StandardCharsets.UTF_8));
+            out.flush();
+        }
+
+        private void writeArray(List<String> values) throws IOException {
+            StringBuilder reply = new StringBuilder("*").append(values.size()).append("\r\n");
+            for (String value : values) {
+                reply.append(bulk(value));
+            }
+            write(reply.toString());
+        }
+
+        private void writeBulk(String value) throws IOException {
+            write(null == value ? "$-1\r\n" : bulk(value));
+        }
+
+        /**
+         * @return 连接关闭时返回 null
+         */
+        private List<String> readCommand() throws IOException {
+            String line = readLine();
+            if (null == line) {
+                return null;
+            }
+            if (line.charAt(0) != '*') {
+                throw new IOException("unsupported request: " + line);
+            }
+            int count = Integer.parseInt(line.substring(1));
+            List<String> args = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String header = readLine();
+                if (null == header || header.charAt(0) != '$') {
+                    throw new IOException("unsupported argument: " + header);
+                }
+                byte[] bytes = new byte[Integer.parseInt(header.substring(1))];
+                int read = 0;
+                while (read < bytes.length) {
+                    int n = in.read(bytes, read, bytes.length - read);
+                    if (n < 0) {
+                        return null;
+                    }
+                    read += n;
+                }
+                readLine();
+                args.add(new String(bytes, StandardCharsets.UTF_8));
+            }
+            return args;
+        }
+
+        private String readLine() throws IOException {
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            int b;
+            while ((b = in.read()) != -1) {
+                if (b == '\r') {
+                    in.read();
+                    return new String(line.toByteArray(), StandardCharsets.UTF_8);
+                }
+                line.write(b);
+            }
+            return null;
+        }
+
+        private void close() {
+            for (String channel : new ArrayList<>(channels)) {
+                unsubscribe(channel);
+            }
+            connections.remove(this);
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // ignore
+            }
+        }
+    }
+
+    /**
+     * lua 脚本的模拟实现
+     */
+    public interface Script {
+        /**
+         * @return null 对应 nil, Number 对应整数, 其他按字符串返回
+         */
+        Object exec(List<String> keys, List<String> args);
+    }
+}
@@ -0,0 +1,191 @@
+package com.pit.jedis;
+
+import com.pit.jedis.normal.NormalJedisPoolContainer;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RedisClientTest {
+    /**
+     * 超过两倍 PIPELINE_SYNC_SIZE, 覆盖多次中间同步
+     */
+    private static final int BATCH_SIZE = 2500;
+
+    private FakeRedisServer server;
+    private RedisClient client;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        client = new RedisClient(new NormalJedisPoolContainer("127.0.0.1:" + server.getPort(), null, 2000,
+                new GenericObjectPoolConfig()));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        server.close();
+    }
+
+    @Test
+    public void testPipelined() {
+        List<Object> results = client.pipelinedAndReturnAll(pipeline -> {
+            pipeline.set("a", "1");
+            pipeline.get("a");
+        });
+        Assert.assertEquals("1", results.get(1));
+        Assert.assertEquals("1", client.pipelined(pipeline -> pipeline.get("a")).get());
+    }
+
+    /**
+     * pipeline 中可能有非幂等命令, 默认失败不重试
+     */
+    @Test
+    public void testPipelinedNoRetryByDefault() {
+        AtomicInteger calls = new AtomicInteger();
+        try {
+            client.pipelined(pipeline -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("fail");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, calls.get());
+        }
+
+        calls.set(0);
+        try {
+            client.pipelinedAndReturnAll(pipeline -> {
+                calls.incrementAndGet();
+                throw new IllegalStateException("fail");
+            });
+            Assert.fail();
+        } catch (IllegalStateException e) {
+            Assert.assertEquals(1, calls.get());
+        }
+    }
+
+    @Test
+    public void testPipelinedRetry() {
+        AtomicInteger calls = new AtomicInteger();
+        String value = client.pipelined(pipeline -> {
+            if (1 == calls.incrementAndGet()) {
+                throw new IllegalStateException("fail");
+            }
+            return "ok";
+        }, 1);
+        Assert.assertEquals("ok", value);
+        Assert.assertEquals(2, calls.get());
+    }
+
+    /**
+     * 结果顺序与 keys 一致, 跳过空 key, 超过 PIPELINE_SYNC_SIZE 时分批同步
+     */
+    @Test
+    public void testBatchGet() {
+        List<String> keys = shuffledKeys("s:", BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i += 2) {
+            server.putString("s:" + i, "v" + i);
+        }
+        List<String> withBlank = new ArrayList<>(keys);
+        withBlank.add(1, "");
+        withBlank.add(BATCH_SIZE / 2, " ");
+
+        Map<String, String> values = client.batchGet(withBlank);
+        Assert.assertEquals(keys, new ArrayList<>(values.keySet()));
+        for (String key : keys) {
+            int index = Integer.parseInt(key.substring(2));
+            Assert.assertEquals(0 == index % 2 ? "v" + index : null, values.get(key));
+        }
+    }
+
+    @Test
+    public void testBatchHash() {
+        List<String> keys = shuffledKeys("h:", BATCH_SIZE);
+        Map<String, Map<String, String>> keyHashes = new LinkedHashMap<>();
+        for (String key : keys) {
+            Map<String, String> hash = new HashMap<>();
+            hash.put("f", key);
+            hash.put("g", "1");
+            keyHashes.put(key, hash);
+        }
+        Map<String, String> results = client.batchHmset(keyHashes, 100);
+        Assert.assertEquals(keys, new ArrayList<>(results.keySet()));
+        Assert.assertTrue(results.values().stream().allMatch("OK"::equals));
+
+        Map<String, String> fields = client.batchHget(keys, "f");
+        Assert.assertEquals(keys, new ArrayList<>(fields.keySet()));
+        Map<String, Map<String, String>> hashes = client.batchHgetAll(keys);
+        Assert.assertEquals(keys, new ArrayList<>(hashes.keySet()));
+        for (String key : keys) {
+            Assert.assertEquals(key, fields.get(key));
+            Assert.assertEquals(keyHashes.get(key), hashes.get(key));
+        }
+        Assert.assertTrue(server.pttl(keys.get(0)) > 0);
+    }
+
+    @Test
+    public void testBatchZset() {
+        List<String> keys = shuffledKeys("z:", BATCH_SIZE);
+        Map<String, Map<String, Double>> keyScoreMembers = new LinkedHashMap<>();
+        for (String key : keys) {
+            Map<String, Double> scoreMembers = new HashMap<>();
+            scoreMembers.put("b", 2.0);
+            scoreMembers.put("a", 1.0);
+            scoreMembers.put(key, 3.0);
+            keyScoreMembers.put(key, scoreMembers);
+        }
+        Map<String, Long> added = client.batchZadd(keyScoreMembers, 0);
+        Assert.assertEquals(keys, new ArrayList<>(added.keySet()));
+        Assert.assertTrue(added.values().stream().allMatch(count -> 3L == count));
+
+        Map<String, Set<String>> ranges = client.batchZrange(keys, 0, -1);
+        Assert.assertEquals(keys, new ArrayList<>(ranges.keySet()));
+        for (String key : keys) {
+            Assert.assertEquals(Arrays.asList("a", "b", key), new ArrayList<>(ranges.get(key)));
+        }
+    }
+
+    @Test
+    public void testBatchExpireAndDel() {
+        List<String> keys = shuffledKeys("d:", BATCH_SIZE);
+        for (int i = 0; i < BATCH_SIZE; i += 2) {
+            server.putString("d:" + i, "v");
+        }
+
+        Map<String, Long> expired = client.batchExpire(keys, 100);
+        Map<String, Long> deleted = client.batchDel(keys);
+        Assert.assertEquals(keys, new ArrayList<>(expired.keySet()));
+        Assert.assertEquals(keys, new ArrayList<>(deleted.keySet()));
+        for (String key : keys) {
+            long expected = 0 == Integer.parseInt(key.substring(2)) % 2 ? 1L : 0L;
+            Assert.assertEquals(expected, expired.get(key).longValue());
+            Assert.assertEquals(expected, deleted.get(key).longValue());
+            Assert.assertNull(server.getString(key));
+        }
+    }
+
+    /**
+     * 打乱顺序的 key, 与字典序、插入服务端的顺序均不同
+     */
+    private static List<String> shuffledKeys(String prefix, int size) {
+        List<String> keys = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            keys.add(prefix + i);
+        }
+        Collections.shuffle(keys, new Random(1));
+        return keys;
+    }
+}
@@ -0,0 +1,166 @@
+package com.pit.jedis;
+
+import com.pit.jedis.normal.NormalJedisPoolContainer;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.function.BooleanSupplier;
+
+public class RedisNearCacheTest {
+    private FakeRedisServer server;
+    private RedisClient client1;
+    private RedisClient client2;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        NearCacheConfig config = NearCacheConfig.builder()
+                .keyPrefixes(Collections.singletonList("hot:"))
+                .build();
+        client1 = new RedisClient(newContainer(), config);
+        client2 = new RedisClient(newContainer(), config);
+        awaitTrue(() -> client1.getNearCache().isSubscribed() && client2.getNearCache().isSubscribed());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        client1.closeNearCache();
+        client2.closeNearCache();
+        server.close();
+    }
+
+    private JedisPoolContainer newContainer() {
+        return new NormalJedisPoolContainer("127.0.0.1:" + server.getPort(), null, 2000, new GenericObjectPoolConfig());
+    }
+
+    @Test
+    public void testReadFromCache() {
+        server.putString("hot:a", "1");
+        Assert.assertEquals("1", client1.get("hot:a"));
+        int gets = server.getCommandCount("GET");
+        Assert.assertEquals("1", client1.get("hot:a"));
+        Assert.assertEquals(gets, server.getCommandCount("GET"));
+
+        // 未匹配前缀的 key 不缓存
+        server.putString("cold:a", "1");
+        client1.get("cold:a");
+        client1.get("cold:a");
+        Assert.assertEquals(gets + 2, server.getCommandCount("GET"));
+    }
+
+    @Test
+    public void testInvalidateOnWrite() throws Exception {
+        server.putString("hot:a", "1");
+        Assert.assertEquals("1", client1.get("hot:a"));
+        Assert.assertEquals("1", client2.get("hot:a"));
+
+        client1.set("hot:a", "2");
+        // 本地立即失效, 其他节点收到通知后失效
+        Assert.assertEquals("2", client1.get("hot:a"));
+        awaitTrue(() -> "2".equals(client2.get("hot:a")));
+
+        server.putHash("hot:h", "f", "x");
+        Assert.assertEquals("x", client1.hget("hot:h", "f"));
+        client2.hset("hot:h", "f", "y");
+        Assert.assertEquals("y", client2.hget("hot:h", "f"));
+        awaitTrue(() -> "y".equals(client1.hget("hot:h", "f")));
+
+        client2.del("hot:a");
+        awaitTrue(() -> null == client1.get("hot:a"));
+    }
+
+    @Test
+    public void testInvalidateOnAsyncWrite() throws Exception {
+        server.putString("hot:a", "1");
+        Assert.assertEquals("1", client1.get("hot:a"));
+        Assert.assertEquals("1", client2.get("hot:a"));
+
+        try (AsyncRedisClient asyncClient = new AsyncRedisClient(client1)) {
+            asyncClient.set("hot:a", "2").join();
+        }
+        Assert.assertEquals("2", client1.get("hot:a"));
+        awaitTrue(() -> "2".equals(client2.get("hot:a")));
+    }
+
+    /**
+     * 批量写命令同样使近端缓存失效
+     */
+    @Test
+    public void testInvalidateOnBatchWrite() throws Exception {
+        server.putHash("hot:h", "f", "x");
+        server.putString("hot:a", "1");
+        Assert.assertEquals("x", client1.hget("hot:h", "f"));
+        Assert.assertEquals("1", client1.get("hot:a"));
+
+        client2.batchHmset(Collections.singletonMap("hot:h", Collections.singletonMap("f", "y")), 0);
+        awaitTrue(() -> "y".equals(client1.hget("hot:h", "f")));
+
+        int publishes = server.getCommandCount("PUBLISH");
+        client2.batchZadd(Collections.singletonMap("hot:z", Collections.singletonMap("m", 1.0)), 0);
+        Assert.assertTrue(server.getCommandCount("PUBLISH") > publishes);
+        publishes = server.getCommandCount("PUBLISH");
+        client2.batchExpire(Collections.singletonList("hot:z"), 100);
+        Assert.assertTrue(server.getCommandCount("PUBLISH") > publishes);
+
+        client2.batchDel(Collections.singletonList("hot:a"));
+        awaitTrue(() -> null == client1.get("hot:a"));
+    }
+
+    @Test
+    public void testExplicitInvalidate() throws Exception {
+        server.putString("hot:a", "1");
+        Assert.assertEquals("1", client2.get("hot:a"));
+
+        client1.pipelined(pipeline -> pipeline.set("hot:a", "2"));
+        Assert.assertEquals("1", client2.get("hot:a"));
+        client1.invalidateNearCache(Collections.singletonList("hot:a"));
+        awaitTrue(() -> "2".equals(client2.get("hot:a")));
+    }
+
+    @Test
+    public void testBypassCacheWhileUnsubscribed() throws Exception {
+        server.putString("hot:a", "1");
+        Assert.assertEquals("1", client1.get("hot:a"));
+
+        server.disconnectSubscribers();
+        awaitTrue(() -> !client1.getNearCache().isSubscribed());
+
+        int gets = server.getCommandCount("GET");
+        server.putString("hot:a", "2");
+        Assert.assertEquals("2", client1.get("hot:a"));
+        Assert.assertEquals("2", client1.get("hot:a"));
+        Assert.assertEquals(gets + 2, server.getCommandCount("GET"));
+    }
+
+    @Test
+    public void testResubscribeClearsCache() throws Exception {
+        server.putString("hot:a", "1");
+        server.putHash("hot:h", "f", "x");
+        Assert.assertEquals("1", client1.get("hot:a"));
+        Assert.assertEquals("x", client1.hget("hot:h", "f"));
+
+        server.disconnectSubscribers();
+        awaitTrue(() -> !client1.getNearCache().isSubscribed());
+        // 断开期间的修改没有失效通知
+        server.putString("hot:a", "2");
+        server.putHash("hot:h", "f", "y");
+
+        awaitTrue(() -> client1.getNearCache().isSubscribed());
+        Assert.assertEquals("2", client1.get("hot:a"));
+        Assert.assertEquals("y", client1.hget("hot:h", "f"));
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                Assert.fail("condition not met in 5s");
+            }
+            Thread.sleep(10);
+        }
+    }
+}
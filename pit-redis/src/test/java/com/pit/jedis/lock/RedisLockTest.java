@@ -0,0 +1,195 @@
+package com.pit.jedis.lock;
+
+import com.pit.jedis.FakeRedisServer;
+import com.pit.jedis.RedisClient;
+import com.pit.jedis.normal.NormalJedisPoolContainer;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class RedisLockTest {
+    private FakeRedisServer server;
+    private RedisLock redisLock;
+
+    @Before
+    public void setUp() throws Exception {
+        server = new FakeRedisServer();
+        server.registerScript(RedisLock.LOCK_SCRIPT, (keys, args) -> {
+            if (server.setIfAbsent(keys.get(0), args.get(0), Long.parseLong(args.get(1)))
+                    || args.get(0).equals(server.getString(keys.get(0)))) {
+                return null;
+            }
+            return server.pttl(keys.get(0));
+        });
+        server.registerScript(RedisLock.UNLOCK_SCRIPT, (keys, args) -> {
+            if (args.get(0).equals(server.getString(keys.get(0)))) {
+                server.delete(keys.get(0));
+                server.publish(args.get(1), keys.get(0));
+                return 1;
+            }
+            return 0;
+        });
+        server.registerScript(RedisLock.RENEW_SCRIPT, (keys, args) -> {
+            if (args.get(0).equals(server.getString(keys.get(0)))) {
+                return server.pexpire(keys.get(0), Long.parseLong(args.get(1))) ? 1 : 0;
+            }
+            return 0;
+        });
+        server.registerScript(RedisLock.LEGACY_LOCK_SCRIPT, (keys, args) ->
+                server.setIfAbsent(keys.get(0), args.get(0), Long.parseLong(args.get(1))) ? null : server.pttl(keys.get(0)));
+        server.registerScript(RedisLock.LEGACY_UNLOCK_SCRIPT, (keys, args) -> {
+            if (server.delete(keys.get(0))) {
+                server.publish(args.get(0), keys.get(0));
+            }
+            return 1;
+        });
+
+        GenericObjectPoolConfig poolConfig = new GenericObjectPoolConfig();
+        poolConfig.setMaxTotal(32);
+        redisLock = new RedisLock(new RedisClient(new NormalJedisPoolContainer("127.0.0.1:" + server.getPort(), null,
+                2000, poolConfig)));
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        redisLock.close();
+        server.close();
+    }
+
+    /**
+     * 多线程竞争同一把锁, 同一时刻只有一个持有者
+     */
+    @Test(timeout = 30000)
+    public void testMutualExclusion() throws Exception {
+        int threads = 8;
+        int rounds = 20;
+        AtomicInteger holders = new AtomicInteger();
+        AtomicInteger overlaps = new AtomicInteger();
+        int[] counter = new int[1];
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < rounds; j++) {
+                        RedisLock.Lease lease = redisLock.lock("mutex", 5000, 10000);
+                        Assert.assertNotNull(lease);
+                        try {
+                            if (1 != holders.incrementAndGet()) {
+                                overlaps.incrementAndGet();
+                            }
+                            counter[0]++;
+                            holders.decrementAndGet();
+                        } finally {
+                            Assert.assertTrue(lease.unlock());
+                        }
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        Assert.assertEquals(0, overlaps.get());
+        Assert.assertEquals(threads * rounds, counter[0]);
+    }
+
+    /**
+     * 锁已过期并被他人持有后, 原持有者不能解锁或续期
+     */
+    @Test
+    public void testNonOwnerCannotUnlock() {
+        RedisLock.Lease first = redisLock.tryLock("owner", 5000);
+        Assert.assertNotNull(first);
+        Assert.assertNull(redisLock.tryLock("owner", 5000));
+
+        // 模拟 first 的锁过期
+        server.delete("owner");
+        RedisLock.Lease second = redisLock.tryLock("owner", 5000);
+        Assert.assertNotNull(second);
+
+        Assert.assertFalse(first.renew());
+        Assert.assertFalse(first.unlock());
+        Assert.assertEquals(second.getToken(), server.getString("owner"));
+        Assert.assertTrue(second.unlock());
+        Assert.assertNull(server.getString("owner"));
+    }
+
+    /**
+     * 持有期间看门狗续期, 超过租期后锁仍然有效
+     */
+    @Test
+    public void testWatchdogKeepsLease() throws Exception {
+        RedisLock.Lease lease = redisLock.tryLock("watchdog", 300);
+        Assert.assertNotNull(lease);
+
+        TimeUnit.MILLISECONDS.sleep(1000);
+        Assert.assertEquals(lease.getToken(), server.getString("watchdog"));
+        Assert.assertTrue(server.pttl("watchdog") > 0);
+        Assert.assertNull(redisLock.tryLock("watchdog", 300));
+
+        Assert.assertTrue(lease.unlock());
+        // 解锁后不再续期
+        Assert.assertNotNull(redisLock.tryLock("watchdog", 300));
+    }
+
+    /**
+     * 等待者收到解锁通知后立即获取锁, 不等到锁过期
+     */
+    @Test(timeout = 10000)
+    public void testWaiterWakesOnRelease() throws Exception {
+        RedisLock.Lease lease = redisLock.tryLock("wake", 30000);
+        Assert.assertNotNull(lease);
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Long> acquiredAt = executor.submit(() -> {
+                RedisLock.Lease waiting = redisLock.lock("wake", 30000, 5000);
+                long now = System.nanoTime();
+                Assert.assertNotNull(waiting);
+                waiting.unlock();
+                return now;
+            });
+            while (0 == server.getSubscriberCount(RedisLock.DEFAULT_CHANNEL)) {
+                TimeUnit.MILLISECONDS.sleep(10);
+            }
+            // 等待者已进入 park
+            TimeUnit.MILLISECONDS.sleep(200);
+
+            long releasedAt = System.nanoTime();
+            Assert.assertTrue(lease.unlock());
+            long elapsed = TimeUnit.NANOSECONDS.toMillis(acquiredAt.get() - releasedAt);
+            Assert.assertTrue("elapsed: " + elapsed, elapsed < 1000);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testDeprecatedLockUnlock() {
+        Pair<Boolean, Long> first = redisLock.tryLock("legacy", Long.valueOf(5000));
+        Assert.assertTrue(first.getLeft());
+        Assert.assertFalse(redisLock.tryLock("legacy", Long.valueOf(5000)).getLeft());
+        Assert.assertFalse(redisLock.lock("legacy", 100).getLeft());
+
+        redisLock.unlock("legacy", first.getRight(), 5000);
+        Pair<Boolean, Long> second = redisLock.lock("legacy", 100);
+        Assert.assertTrue(second.getLeft());
+        redisLock.unlock("legacy");
+        Assert.assertNull(server.getString("legacy"));
+    }
+}
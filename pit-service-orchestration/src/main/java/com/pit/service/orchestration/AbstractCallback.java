@@ -83,15 +83,15 @@ public abstract class AbstractCallback<ResultType, ErrorType extends Throwable,
     protected volatile long waitTime = 600;
 
     /**
-     * 线程专用
+     * 创建 callback 时的线程上下文快照, 只读, 执行 callback 时按引用安装
      */
-    protected PitThreadInfo threadHolder = new PitThreadInfo();
+    protected PitThreadInfo threadHolder;
 
 
     public AbstractCallback(long parentThreadId) {
         super();
         this.parentThreadId = parentThreadId;
-        setThreadHolder(PitThreadLocalHolder.getThreadHolder());
+        this.threadHolder = PitThreadLocalHolder.snapshot();
     }
 
     public AbstractCallback(long parentThreadId, long waitTime) {
@@ -100,11 +100,16 @@ public abstract class AbstractCallback<ResultType, ErrorType extends Throwable,
         if (0 != waitTime) {
             this.waitTime = waitTime;
         }
-        setThreadHolder(PitThreadLocalHolder.getThreadHolder());
+        this.threadHolder = PitThreadLocalHolder.snapshot();
     }
 
+    /**
+     * 替换 callback 使用的上下文, 保存的是只读快照, 之后对 threadHolder 的修改不影响 callback
+     *
+     * @param threadHolder
+     */
     public void setThreadHolder(PitThreadInfo threadHolder) {
-        this.threadHolder.copy(threadHolder);
+        this.threadHolder = PitThreadLocalHolder.snapshot(threadHolder);
     }
 
     /**
@@ -153,27 +158,36 @@ public abstract class AbstractCallback<ResultType, ErrorType extends Throwable,
      */
     protected void onDoIt(ResultType result, ErrorType e, int type) {
         setTriggerThreadId();
-        PitThreadLocalHolder.setThreadHolder(threadHolder);
-        if (null != sender && needResend(result, e, type)) {
-            sender.doSend(this);
-            return;
-        }
+        // 触发线程(如 io 线程)执行完后恢复其原有上下文
+        PitThreadInfo previous = PitThreadLocalHolder.attach(threadHolder);
+        try {
+            if (null != sender && needResend(result, e, type)) {
+                sender.doSend(this);
+                return;
+            }
 
-        // 切换线程
-        if (null == this.tpe || true == this.isSwitched) {
-            doIt(result, e, type);
-        } else {
-            try {
-                this.isSwitched = true;
-                this.tpe.execute(() -> {
-                    PitThreadLocalHolder.setThreadHolder(threadHolder);
-                    doIt(result, e, type);
-                });
-            } catch (RejectedExecutionException r) {
-                // TODO 是否执行
-            } catch (Throwable t) {
-                dealException(t);
+            // 切换线程
+            if (null == this.tpe || true == this.isSwitched) {
+                doIt(result, e, type);
+            } else {
+                try {
+                    this.isSwitched = true;
+                    this.tpe.execute(() -> {
+                        PitThreadInfo workerPrevious = PitThreadLocalHolder.attach(threadHolder);
+                        try {
+                            doIt(result, e, type);
+                        } finally {
+                            PitThreadLocalHolder.restore(workerPrevious);
+                        }
+                    });
+                } catch (RejectedExecutionException r) {
+                    // TODO 是否执行
+                } catch (Throwable t) {
+                    dealException(t);
+                }
             }
+        } finally {
+            PitThreadLocalHolder.restore(previous);
         }
     }
 
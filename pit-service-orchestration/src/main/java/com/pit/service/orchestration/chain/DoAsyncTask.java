@@ -11,9 +11,9 @@ import com.pit.service.orchestration.bean.ResultVO;
 public class DoAsyncTask implements Runnable {
 
     /**
-     * 线程专用
+     * 创建任务时的线程上下文快照, 只读, 执行时按引用安装
      */
-    protected PitThreadInfo threadInfo = new PitThreadInfo();
+    protected PitThreadInfo threadInfo;
     private ServiceChain sc;
     private Object income;
     private ResultVO output;
@@ -23,17 +23,26 @@ public class DoAsyncTask implements Runnable {
         this.sc = sc;
         this.income = income;
         this.output = output;
-        setThreadInfo(PitThreadLocalHolder.getThreadHolder());
+        this.threadInfo = PitThreadLocalHolder.snapshot();
     }
 
+    /**
+     * 替换任务使用的上下文, 保存的是只读快照, 之后对 threadInfo 的修改不影响任务
+     *
+     * @param threadInfo
+     */
     public void setThreadInfo(PitThreadInfo threadInfo) {
-        this.threadInfo.copy(threadInfo);
+        this.threadInfo = PitThreadLocalHolder.snapshot(threadInfo);
     }
 
     @Override
     public void run() {
-        PitThreadLocalHolder.setThreadHolder(threadInfo);
-        sc.doTask(income, output);
+        PitThreadInfo previous = PitThreadLocalHolder.attach(threadInfo);
+        try {
+            sc.doTask(income, output);
+        } finally {
+            PitThreadLocalHolder.restore(previous);
+        }
     }
 
 }